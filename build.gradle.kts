@@ -22,6 +22,8 @@ dependencies {
     implementation("org.jacoco:org.jacoco.core:0.8.12") // 新增：JaCoCo CLI工具
     implementation("org.jacoco:org.jacoco.report:0.8.12") // 新增：报告生成核心
     implementation(fileTree(mapOf("dir" to "libs", "include" to listOf("*.jar"))))
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 
@@ -32,6 +34,10 @@ tasks {
         targetCompatibility = "17"
     }
 
+    test {
+        useJUnitPlatform()
+    }
+
     patchPluginXml {
         sinceBuild.set("222")
         untilBuild.set("251.*")
@@ -58,6 +64,48 @@ tasks.jar {
         )
     }
 }
+// 命令行生成覆盖率报告（与IDE无关），例如：
+// ./gradlew coverageReport --args="--exec a.exec --module app --classes target/classes --sources src/main/java --html out/app"
+tasks.register<JavaExec>("coverageReport") {
+    group = "jacoco"
+    description = "Generate HTML coverage reports for one or more modules from exec files"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.jacoco.engine.ReportCli")
+}
+// 打包可独立运行的命令行报告工具：java -jar build/libs/jacoco-plugin-*-report-cli.jar --help
+tasks.register<Jar>("reportCliJar") {
+    group = "jacoco"
+    description = "Assemble a standalone jar of the headless report engine"
+    archiveClassifier.set("report-cli")
+    manifest {
+        attributes(mapOf("Main-Class" to "org.jacoco.engine.ReportCli"))
+    }
+    from(sourceSets.main.get().output) {
+        include("org/jacoco/engine/**", "org/jacoco/util/ExecFileCompactor*.class")
+    }
+    dependsOn(configurations.runtimeClasspath)
+    from({
+        configurations.runtimeClasspath.get()
+                .filter { it.name.endsWith(".jar") && it.name != "jacocoagent.jar" }
+                .map { zipTree(it) }
+    })
+    exclude("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA")
+    duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+}
+// agent开销基准测试：对比不挂agent与不同agent参数下示例应用的启动、类加载和吞吐量
+// ./gradlew agentBenchmark --args="--runs 5 --classes 2000"
+sourceSets {
+    create("benchmark")
+}
+tasks.register<JavaExec>("agentBenchmark") {
+    group = "jacoco"
+    description = "Measure startup, class-load and throughput overhead of the bundled JaCoCo agent"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("org.jacoco.benchmark.AgentOverheadBenchmark")
+    // 默认值通过系统属性传入，--args 可覆盖
+    systemProperty("benchmark.agent", file("libs/jacocoagent.jar").absolutePath)
+    systemProperty("benchmark.report", layout.buildDirectory.file("reports/agent-benchmark.csv").get().asFile.absolutePath)
+}
 tasks.withType<JavaExec> {
     val javaHome = System.getenv("JAVA_HOME") // 或者直接写死路径
     executable = "$javaHome/bin/java"
@@ -0,0 +1,252 @@
+package org.jacoco.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JaCoCo agent开销基准测试
+ * 分别在不挂agent、挂不同agent参数的情况下启动 {@link SampleApplication}，
+ * 统计启动耗时、类加载耗时和稳态吞吐量（多次运行取中位数）。
+ * <pre>
+ * ./gradlew agentBenchmark --args="--runs 5 --classes 2000 --variant mine=output=none,includes=com.foo.*"
+ * </pre>
+ */
+public class AgentOverheadBenchmark {
+
+    private static final String BASELINE = "no-agent";
+    private static final String APP_PACKAGE = "org.jacoco.benchmark";
+    private static final long PROCESS_TIMEOUT_SECONDS = 300;
+
+    private File agentJar = fileProperty("benchmark.agent");
+    private File reportFile = fileProperty("benchmark.report");
+    private int runs = 3;
+    private int generatedClasses = 1000;
+    private int warmupSeconds = 3;
+    private int measureSeconds = 5;
+    private final Map<String, String> variants = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        AgentOverheadBenchmark benchmark = new AgentOverheadBenchmark();
+        benchmark.parseArgs(args);
+        benchmark.run();
+    }
+
+    private void parseArgs(String[] args) {
+        boolean customVariants = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--agent":
+                    agentJar = new File(value);
+                    break;
+                case "--report":
+                    reportFile = new File(value);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(value);
+                    break;
+                case "--classes":
+                    generatedClasses = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "--measure":
+                    measureSeconds = Integer.parseInt(value);
+                    break;
+                case "--variant":
+                    // 格式：名称=agent参数，参数为空表示不挂agent
+                    int eq = value.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("--variant 格式应为 名称=agent参数: " + value);
+                    }
+                    if (!customVariants) {
+                        variants.put(BASELINE, null);
+                        customVariants = true;
+                    }
+                    String options = value.substring(eq + 1);
+                    variants.put(value.substring(0, eq), options.isEmpty() ? null : options);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+        if (agentJar == null || !agentJar.isFile()) {
+            throw new IllegalArgumentException("未找到agent jar，请通过 --agent 指定 libs/jacocoagent.jar");
+        }
+        if (!customVariants) {
+            addDefaultVariants();
+        }
+    }
+
+    // 默认场景：与插件注入参数一致的配置，以及常见的范围收窄/放宽配置
+    private void addDefaultVariants() {
+        variants.put(BASELINE, null);
+        variants.put("plugin-default", "output=tcpserver,port=" + freePort()
+                + ",address=127.0.0.1,includes=" + APP_PACKAGE + ".*");
+        variants.put("includes-sample", "output=none,includes=" + APP_PACKAGE + ".sample.*");
+        variants.put("includes-all", "output=none,includes=*");
+        variants.put("exclude-generated", "output=none,includes=" + APP_PACKAGE + ".*,excludes="
+                + SyntheticClasses.PACKAGE + ".*");
+        // 示例应用中一半生成类没有CodeSource位置，只有该参数开启时才会被插桩
+        variants.put("inclnolocationclasses", "output=none,includes=" + APP_PACKAGE
+                + ".*,inclnolocationclasses=true");
+    }
+
+    private void run() throws Exception {
+        Path generatedDir = Files.createTempDirectory("jacoco-benchmark-classes");
+        System.out.printf("生成 %d 个合成类...%n", generatedClasses);
+        SyntheticClasses.generate(generatedClasses, generatedDir);
+        String classpath = System.getProperty("java.class.path") + File.pathSeparator + generatedDir;
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, String> variant : variants.entrySet()) {
+            List<Result> samples = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                samples.add(launch(classpath, variant.getValue()));
+            }
+            Result median = Result.median(samples);
+            results.put(variant.getKey(), median);
+            System.out.printf("%-24s 完成 %d 次运行%n", variant.getKey(), runs);
+        }
+        printTable(results);
+        if (reportFile != null) {
+            writeCsv(results);
+        }
+    }
+
+    // 启动一次示例应用并解析输出
+    private Result launch(String classpath, String agentOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (agentOptions != null) {
+            command.add("-javaagent:" + agentJar.getAbsolutePath() + "=" + agentOptions);
+        }
+        command.addAll(Arrays.asList("-cp", classpath, SampleApplication.class.getName(),
+                String.valueOf(generatedClasses), String.valueOf(warmupSeconds), String.valueOf(measureSeconds)));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long readyMillis = -1;
+        Map<String, String> values = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("READY")) {
+                    readyMillis = (System.nanoTime() - start) / 1_000_000;
+                } else if (line.startsWith("RESULT ")) {
+                    for (String pair : line.substring("RESULT ".length()).split(" ")) {
+                        String[] kv = pair.split("=", 2);
+                        values.put(kv[0], kv[1]);
+                    }
+                } else {
+                    System.out.println("  | " + line);
+                }
+            }
+        }
+        if (!process.waitFor(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0
+                || readyMillis < 0 || values.isEmpty()) {
+            process.destroyForcibly();
+            throw new IOException("示例应用运行失败: " + String.join(" ", command));
+        }
+        return new Result(readyMillis,
+                Long.parseLong(values.get("startupMillis")),
+                Long.parseLong(values.get("classLoadMillis")),
+                Integer.parseInt(values.get("loadedClasses")),
+                Double.parseDouble(values.get("throughput")));
+    }
+
+    private void printTable(Map<String, Result> results) {
+        Result baseline = results.get(BASELINE);
+        System.out.println();
+        System.out.printf("%-24s %12s %12s %12s %10s %14s %10s%n",
+                "variant", "launch(ms)", "startup(ms)", "classload(ms)", "classes", "throughput/s", "tput vs base");
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result r = entry.getValue();
+            String relative = baseline == null ? "-"
+                    : String.format("%+.1f%%", (r.throughput / baseline.throughput - 1) * 100);
+            System.out.printf("%-24s %12d %12d %12d %10d %14.0f %10s%n", entry.getKey(),
+                    r.launchMillis, r.startupMillis, r.classLoadMillis, r.loadedClasses, r.throughput, relative);
+        }
+        System.out.println();
+        System.out.println("launch=进程启动到READY的墙钟时间，startup=JVM uptime，classload=加载并实例化合成类耗时");
+    }
+
+    private void writeCsv(Map<String, Result> results) throws IOException {
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.println("variant,agentOptions,launchMillis,startupMillis,classLoadMillis,loadedClasses,throughput");
+            for (Map.Entry<String, Result> entry : results.entrySet()) {
+                Result r = entry.getValue();
+                String options = variants.get(entry.getKey());
+                writer.printf("%s,\"%s\",%d,%d,%d,%d,%.1f%n", entry.getKey(), options == null ? "" : options,
+                        r.launchMillis, r.startupMillis, r.classLoadMillis, r.loadedClasses, r.throughput);
+            }
+        }
+        System.out.println("结果已写入: " + reportFile.getAbsolutePath());
+    }
+
+    private static File fileProperty(String key) {
+        String value = System.getProperty(key);
+        return value == null ? null : new File(value);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法分配空闲端口", e);
+        }
+    }
+
+    // 单次（或中位数）测量结果
+    private static class Result {
+        final long launchMillis;
+        final long startupMillis;
+        final long classLoadMillis;
+        final int loadedClasses;
+        final double throughput;
+
+        Result(long launchMillis, long startupMillis, long classLoadMillis, int loadedClasses, double throughput) {
+            this.launchMillis = launchMillis;
+            this.startupMillis = startupMillis;
+            this.classLoadMillis = classLoadMillis;
+            this.loadedClasses = loadedClasses;
+            this.throughput = throughput;
+        }
+
+        // 各指标分别取中位数
+        static Result median(List<Result> samples) {
+            return new Result(
+                    (long) median(samples.stream().mapToDouble(r -> r.launchMillis).toArray()),
+                    (long) median(samples.stream().mapToDouble(r -> r.startupMillis).toArray()),
+                    (long) median(samples.stream().mapToDouble(r -> r.classLoadMillis).toArray()),
+                    (int) median(samples.stream().mapToDouble(r -> r.loadedClasses).toArray()),
+                    median(samples.stream().mapToDouble(r -> r.throughput).toArray()));
+        }
+
+        private static double median(double[] values) {
+            Arrays.sort(values);
+            int middle = values.length / 2;
+            return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.jacoco.benchmark;
+
+import org.jacoco.benchmark.sample.InventoryRepository;
+import org.jacoco.benchmark.sample.Order;
+import org.jacoco.benchmark.sample.OrderService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 被测示例应用，由 {@link AgentOverheadBenchmark} 在子进程中启动
+ * 参数：生成类数量 预热秒数 测量秒数
+ * 输出：READY 行表示启动完成，RESULT 行为测量结果
+ * 一半的生成类通过自定义类加载器直接 defineClass（不带ProtectionDomain，没有class文件位置），
+ * 用于测量 inclnolocationclasses 参数的影响：默认情况下agent不插桩这些类。
+ */
+public class SampleApplication {
+
+    private static final int SKU_COUNT = 64;
+
+    public static void main(String[] args) throws Exception {
+        int generatedClasses = Integer.parseInt(args[0]);
+        long warmupMillis = Long.parseLong(args[1]) * 1000;
+        long measureMillis = Long.parseLong(args[2]) * 1000;
+
+        // 1. 类加载阶段：加载全部生成类（agent会在此时插桩）
+        long loadStart = System.nanoTime();
+        IntUnaryOperator[] operators = new IntUnaryOperator[generatedClasses];
+        ClassLoader noLocationLoader = new NoLocationClassLoader(SampleApplication.class.getClassLoader());
+        for (int i = 0; i < generatedClasses; i++) {
+            String className = SyntheticClasses.className(i);
+            Class<?> type = i % 2 == 0 ? Class.forName(className) : noLocationLoader.loadClass(className);
+            operators[i] = (IntUnaryOperator) type.getDeclaredConstructor().newInstance();
+        }
+        OrderService service = new OrderService(new InventoryRepository(SKU_COUNT));
+        long classLoadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        int loadedClasses = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+        System.out.println("READY");
+
+        // 2. 预热后测量稳态吞吐量
+        long sink = run(service, operators, warmupMillis)[1];
+        long[] measured = run(service, operators, measureMillis);
+        double throughput = measured[0] * 1000.0 / measureMillis;
+
+        System.out.printf("RESULT startupMillis=%d classLoadMillis=%d loadedClasses=%d throughput=%.1f sink=%d%n",
+                startupMillis, classLoadMillis, loadedClasses, throughput, sink + measured[1]);
+    }
+
+    // 在指定时间内循环处理请求，返回 [请求数, 结果校验和]
+    private static long[] run(OrderService service, IntUnaryOperator[] operators, long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        long operations = 0;
+        long sink = 0;
+        int index = 0;
+        while (System.currentTimeMillis() < deadline) {
+            for (int batch = 0; batch < 1000; batch++, index++) {
+                Order order = new Order(index, InventoryRepository.sku(index % SKU_COUNT),
+                        1 + index % 150, 10 + index % 90, (index & 3) == 0);
+                sink += service.process(order);
+                if (operators.length > 0) {
+                    sink += operators[index % operators.length].applyAsInt(index);
+                }
+            }
+            operations += 1000;
+        }
+        return new long[]{operations, sink};
+    }
+
+    /**
+     * 自行定义生成类的类加载器，不委托给父加载器，也不指定ProtectionDomain，
+     * 与运行时生成、没有CodeSource位置的类（如部分框架动态定义的类）一致
+     */
+    private static class NoLocationClassLoader extends ClassLoader {
+
+        NoLocationClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(SyntheticClasses.PACKAGE + ".")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytes = readClass(name);
+                    type = defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}
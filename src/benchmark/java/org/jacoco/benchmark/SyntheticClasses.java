@@ -0,0 +1,70 @@
+package org.jacoco.benchmark;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 生成用于测量类加载/插桩开销的合成类
+ * 示例应用本身的类太少，无法体现agent在大量业务类上的插桩耗时
+ */
+public final class SyntheticClasses {
+
+    public static final String PACKAGE = "org.jacoco.benchmark.generated";
+
+    private SyntheticClasses() {
+    }
+
+    public static String className(int index) {
+        return PACKAGE + ".Gen" + index;
+    }
+
+    /**
+     * 生成并编译指定数量的类
+     *
+     * @param count     类数量
+     * @param outputDir class输出目录
+     * @throws IOException 写入或编译失败
+     */
+    public static void generate(int count, Path outputDir) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("当前运行环境不是JDK，无法编译合成类");
+        }
+        Path sourceDir = Files.createTempDirectory("jacoco-benchmark-src");
+        Path packageDir = sourceDir.resolve(PACKAGE.replace('.', '/'));
+        Files.createDirectories(packageDir);
+        Files.createDirectories(outputDir);
+
+        List<String> arguments = new ArrayList<>(List.of("-d", outputDir.toString(), "-g", "-nowarn"));
+        for (int i = 0; i < count; i++) {
+            Path source = packageDir.resolve("Gen" + i + ".java");
+            Files.writeString(source, source(i));
+            arguments.add(source.toString());
+        }
+        int exitCode = compiler.run(null, null, null, arguments.toArray(new String[0]));
+        if (exitCode != 0) {
+            throw new IOException("合成类编译失败，退出码: " + exitCode);
+        }
+    }
+
+    private static String source(int index) {
+        return "package " + PACKAGE + ";\n"
+                + "public class Gen" + index + " implements java.util.function.IntUnaryOperator {\n"
+                + "    @Override\n"
+                + "    public int applyAsInt(int x) {\n"
+                + "        if ((x & 1) == 0) {\n"
+                + "            return x / 2 + " + index + ";\n"
+                + "        }\n"
+                + "        for (int i = 0; i < 3; i++) {\n"
+                + "            x += i * " + index + ";\n"
+                + "        }\n"
+                + "        return x % 1000;\n"
+                + "    }\n"
+                + "}\n";
+    }
+}
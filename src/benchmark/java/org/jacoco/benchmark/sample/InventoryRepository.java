@@ -0,0 +1,35 @@
+package org.jacoco.benchmark.sample;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 示例库存仓库（内存实现）
+ */
+public class InventoryRepository {
+
+    private final Map<String, Integer> stock = new HashMap<>();
+
+    public InventoryRepository(int skuCount) {
+        for (int i = 0; i < skuCount; i++) {
+            stock.put(sku(i), 1_000_000);
+        }
+    }
+
+    public static String sku(int index) {
+        return "SKU-" + index;
+    }
+
+    public boolean reserve(String sku, int quantity) {
+        Integer available = stock.get(sku);
+        if (available == null || available < quantity) {
+            return false;
+        }
+        stock.put(sku, available - quantity);
+        return true;
+    }
+
+    public void release(String sku, int quantity) {
+        stock.merge(sku, quantity, Integer::sum);
+    }
+}
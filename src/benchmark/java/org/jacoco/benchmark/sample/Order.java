@@ -0,0 +1,21 @@
+package org.jacoco.benchmark.sample;
+
+/**
+ * 示例订单
+ */
+public class Order {
+
+    public final long id;
+    public final String sku;
+    public final int quantity;
+    public final int unitPrice;
+    public final boolean member;
+
+    public Order(long id, String sku, int quantity, int unitPrice, boolean member) {
+        this.id = id;
+        this.sku = sku;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.member = member;
+    }
+}
@@ -0,0 +1,24 @@
+package org.jacoco.benchmark.sample;
+
+/**
+ * 示例订单服务：模拟一次"请求"的处理
+ */
+public class OrderService {
+
+    private final InventoryRepository inventory;
+    private final PriceCalculator calculator = new PriceCalculator();
+
+    public OrderService(InventoryRepository inventory) {
+        this.inventory = inventory;
+    }
+
+    public int process(Order order) {
+        if (!inventory.reserve(order.sku, order.quantity)) {
+            return -1;
+        }
+        int total = calculator.total(order);
+        // 立即归还库存，保证长时间运行时状态稳定
+        inventory.release(order.sku, order.quantity);
+        return total;
+    }
+}
@@ -0,0 +1,20 @@
+package org.jacoco.benchmark.sample;
+
+/**
+ * 示例价格计算：包含较多分支，便于观察探针开销
+ */
+public class PriceCalculator {
+
+    public int total(Order order) {
+        int amount = order.quantity * order.unitPrice;
+        if (order.quantity >= 100) {
+            amount = amount * 90 / 100;
+        } else if (order.quantity >= 10) {
+            amount = amount * 95 / 100;
+        }
+        if (order.member) {
+            amount -= Math.min(amount / 20, 500);
+        }
+        return Math.max(amount, 0);
+    }
+}
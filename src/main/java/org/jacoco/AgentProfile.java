@@ -0,0 +1,114 @@
+package org.jacoco;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JaCoCo Agent参数配置（可按运行配置选择）
+ * 字段均为public以便持久化到 jacoco-port-settings.xml
+ */
+public class AgentProfile {
+
+    public static final String OUTPUT_TCPSERVER = "tcpserver";
+    public static final String OUTPUT_FILE = "file";
+    public static final String OUTPUT_NONE = "none";
+
+    public static final String DEFAULT_PROFILE = "默认";
+    public static final String SLIM_PROFILE = "精简";
+    public static final String FILE_PROFILE = "文件输出";
+
+    // 精简配置排除的包：配置类、数据对象、常量和枚举
+    static final String SLIM_EXCLUDES = "*.config.*:*.configuration.*:*.dto.*:*.vo.*:*.entity.*:*.model.*"
+            + ":*.constant.*:*.constants.*:*.enums.*";
+
+    // 配置名称
+    public String name = "";
+    // 插桩包含的类，多个用:分隔，为空时按主类包名推断
+    public String includes = "";
+    // 排除的类，多个用:分隔
+    public String excludes = "";
+    // 排除的类加载器，多个用:分隔
+    public String exclClassLoader = "sun.reflect.DelegatingClassLoader";
+    // 是否插桩启动类加载器加载的类
+    public boolean inclBootstrapClasses = false;
+    // 应用退出时是否dump
+    public boolean dumpOnExit = true;
+    // 输出方式：tcpserver / file / none
+    public String output = OUTPUT_TCPSERVER;
+
+    public AgentProfile() {
+    }
+
+    public AgentProfile(String name) {
+        this.name = name;
+    }
+
+    // 内置配置
+    public static List<AgentProfile> builtinProfiles() {
+        List<AgentProfile> profiles = new ArrayList<>();
+        profiles.add(new AgentProfile(DEFAULT_PROFILE));
+
+        // 只插桩业务逻辑：在主类包范围内排除配置、DTO/VO、实体、常量等没有分支逻辑的包，减少插桩类数量
+        AgentProfile slim = new AgentProfile(SLIM_PROFILE);
+        slim.excludes = SLIM_EXCLUDES;
+        slim.exclClassLoader = "sun.reflect.DelegatingClassLoader:jdk.internal.reflect.DelegatingClassLoader";
+        profiles.add(slim);
+
+        AgentProfile file = new AgentProfile(FILE_PROFILE);
+        file.output = OUTPUT_FILE;
+        profiles.add(file);
+        return profiles;
+    }
+
+    public boolean isTcpserver() {
+        return OUTPUT_TCPSERVER.equals(output);
+    }
+
+    /**
+     * 构建 -javaagent 参数
+     *
+     * @param agentJarPath    agent jar路径
+     * @param port            TCPServer端口（仅tcpserver模式使用）
+     * @param execFilePath    exec文件路径（仅file模式使用）
+     * @param defaultIncludes includes为空时使用的包含规则
+     * @return String
+     */
+    public String toAgentParameter(String agentJarPath, int port, String execFilePath, String defaultIncludes) {
+        StringBuilder options = new StringBuilder("output=").append(output);
+        if (isTcpserver()) {
+            options.append(",port=").append(port).append(",address=127.0.0.1");
+        } else if (OUTPUT_FILE.equals(output)) {
+            options.append(",destfile=").append(execFilePath).append(",append=true");
+        }
+        String includePattern = normalizePattern(includes);
+        options.append(",includes=").append(includePattern.isEmpty() ? defaultIncludes : includePattern);
+        appendIfPresent(options, "excludes", normalizePattern(excludes));
+        appendIfPresent(options, "exclclassloader", normalizePattern(exclClassLoader));
+        if (inclBootstrapClasses) {
+            options.append(",inclbootstrapclasses=true");
+        }
+        if (!dumpOnExit) {
+            options.append(",dumponexit=false");
+        }
+        return "-javaagent:" + agentJarPath + "=" + options;
+    }
+
+    // agent参数本身用逗号分隔，规则中的逗号、分号和空白统一转为:
+    private static String normalizePattern(String pattern) {
+        if (pattern == null) {
+            return "";
+        }
+        return String.join(":", pattern.trim().split("[\\s,;:]+")).replaceAll("^:|:$", "");
+    }
+
+    private static void appendIfPresent(StringBuilder options, String key, String value) {
+        if (!value.isEmpty()) {
+            options.append(',').append(key).append('=').append(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
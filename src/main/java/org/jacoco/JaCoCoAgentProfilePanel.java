@@ -0,0 +1,198 @@
+package org.jacoco;
+
+
+import com.intellij.execution.RunManager;
+import com.intellij.execution.RunnerAndConfigurationSettings;
+import com.intellij.execution.application.ApplicationConfiguration;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+
+import javax.swing.*;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
+import java.awt.*;
+
+/**
+ * Agent配置面板：为运行配置选择Agent配置，并编辑配置的插桩范围和输出方式
+ */
+public class JaCoCoAgentProfilePanel {
+
+    private static final String[] OUTPUT_MODES = {
+            AgentProfile.OUTPUT_TCPSERVER, AgentProfile.OUTPUT_FILE, AgentProfile.OUTPUT_NONE
+    };
+
+    private final Project project;
+    private final JaCoCoPortSettings settings;
+    private final JPanel panel;
+    private final JComboBox<String> runConfigurationCombo = new JComboBox<>();
+    private final JComboBox<String> profileCombo = new JComboBox<>();
+    private final JTextField includesField = new JTextField(30);
+    private final JTextField excludesField = new JTextField(30);
+    private final JTextField exclClassLoaderField = new JTextField(30);
+    private final JCheckBox inclBootstrapCheckBox = new JCheckBox("插桩启动类加载器的类(inclbootstrapclasses)");
+    private final JCheckBox dumpOnExitCheckBox = new JCheckBox("退出时dump(dumponexit)");
+    private final JComboBox<String> outputCombo = new JComboBox<>(OUTPUT_MODES);
+    // 程序刷新下拉框时不触发联动
+    private boolean updating;
+
+    public JaCoCoAgentProfilePanel(Project project) {
+        this.project = project;
+        this.settings = JaCoCoPortSettings.getInstance(project);
+
+        includesField.setToolTipText("多个规则用:分隔，为空时按启动类包名推断");
+        excludesField.setToolTipText("多个规则用:分隔，支持*和?通配符");
+        exclClassLoaderField.setToolTipText("多个类加载器用:分隔");
+
+        JButton bindButton = new JButton("应用到运行配置");
+        JButton saveButton = new JButton("保存配置");
+        JButton newButton = new JButton("新建配置");
+
+        panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createTitledBorder("Agent配置"));
+        panel.add(row(new JLabel("运行配置："), runConfigurationCombo, new JLabel("Agent配置："), profileCombo));
+        panel.add(row(new JLabel("includes："), includesField));
+        panel.add(row(new JLabel("excludes："), excludesField));
+        panel.add(row(new JLabel("exclclassloader："), exclClassLoaderField));
+        panel.add(row(new JLabel("output："), outputCombo, inclBootstrapCheckBox, dumpOnExitCheckBox));
+        panel.add(row(bindButton, saveButton, newButton));
+
+        // 运行配置列表随时可能变化，展开时刷新
+        runConfigurationCombo.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+                reloadRunConfigurations();
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(PopupMenuEvent e) {
+            }
+        });
+        runConfigurationCombo.addActionListener(e -> {
+            if (!updating) {
+                selectProfile(settings.getProfileName(getSelectedRunConfiguration()));
+            }
+        });
+        // 选择配置只用于查看和编辑，点击"应用到运行配置"后才绑定
+        profileCombo.addActionListener(e -> {
+            if (!updating) {
+                showProfile(settings.findAgentProfile((String) profileCombo.getSelectedItem()));
+            }
+        });
+        bindButton.addActionListener(e -> bindProfile());
+        saveButton.addActionListener(e -> saveProfile((String) profileCombo.getSelectedItem()));
+        newButton.addActionListener(e -> createProfile());
+
+        reloadRunConfigurations();
+        reloadProfiles();
+        selectProfile(settings.getProfileName(getSelectedRunConfiguration()));
+    }
+
+    public JPanel getPanel() {
+        return panel;
+    }
+
+    private JPanel row(JComponent... components) {
+        JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        for (JComponent component : components) {
+            row.add(component);
+        }
+        return row;
+    }
+
+    // 加载项目中的Application运行配置
+    private void reloadRunConfigurations() {
+        Object selected = runConfigurationCombo.getSelectedItem();
+        updating = true;
+        try {
+            runConfigurationCombo.removeAllItems();
+            for (RunnerAndConfigurationSettings configuration : RunManager.getInstance(project).getAllSettings()) {
+                if (configuration.getConfiguration() instanceof ApplicationConfiguration) {
+                    runConfigurationCombo.addItem(configuration.getName());
+                }
+            }
+            if (selected != null) {
+                runConfigurationCombo.setSelectedItem(selected);
+            }
+        } finally {
+            updating = false;
+        }
+    }
+
+    private void reloadProfiles() {
+        updating = true;
+        try {
+            profileCombo.removeAllItems();
+            for (AgentProfile profile : settings.getAgentProfiles()) {
+                profileCombo.addItem(profile.name);
+            }
+        } finally {
+            updating = false;
+        }
+    }
+
+    private void selectProfile(String profileName) {
+        updating = true;
+        try {
+            profileCombo.setSelectedItem(profileName);
+        } finally {
+            updating = false;
+        }
+        showProfile(settings.findAgentProfile((String) profileCombo.getSelectedItem()));
+    }
+
+    // 把当前选择的Agent配置绑定到运行配置
+    private void bindProfile() {
+        String profileName = (String) profileCombo.getSelectedItem();
+        String runConfiguration = getSelectedRunConfiguration();
+        if (runConfiguration != null && profileName != null) {
+            settings.setProfileName(runConfiguration, profileName);
+        }
+    }
+
+    private void showProfile(AgentProfile profile) {
+        if (profile == null) {
+            return;
+        }
+        includesField.setText(profile.includes);
+        excludesField.setText(profile.excludes);
+        exclClassLoaderField.setText(profile.exclClassLoader);
+        inclBootstrapCheckBox.setSelected(profile.inclBootstrapClasses);
+        dumpOnExitCheckBox.setSelected(profile.dumpOnExit);
+        outputCombo.setSelectedItem(profile.output);
+    }
+
+    private void saveProfile(String profileName) {
+        if (StringUtil.isEmptyOrSpaces(profileName)) {
+            return;
+        }
+        AgentProfile profile = new AgentProfile(profileName.trim());
+        profile.includes = includesField.getText().trim();
+        profile.excludes = excludesField.getText().trim();
+        profile.exclClassLoader = exclClassLoaderField.getText().trim();
+        profile.inclBootstrapClasses = inclBootstrapCheckBox.isSelected();
+        profile.dumpOnExit = dumpOnExitCheckBox.isSelected();
+        profile.output = (String) outputCombo.getSelectedItem();
+        settings.saveAgentProfile(profile);
+    }
+
+    // 以当前编辑内容新建配置
+    private void createProfile() {
+        String profileName = Messages.showInputDialog(project, "配置名称", "新建Agent配置", null);
+        if (StringUtil.isEmptyOrSpaces(profileName)) {
+            return;
+        }
+        saveProfile(profileName);
+        reloadProfiles();
+        profileCombo.setSelectedItem(profileName.trim());
+    }
+
+    private String getSelectedRunConfiguration() {
+        return (String) runConfigurationCombo.getSelectedItem();
+    }
+}
@@ -0,0 +1,168 @@
+package org.jacoco;
+
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 与单个应用TCPServer的连接
+ * 握手只在建立连接时进行一次，连续的dump命令复用同一连接；连接失效时自动重连一次。
+ * 注意：agent同一时间只服务一个连接，持有连接期间其他客户端（jacococli、脚本、其他IDE窗口）需等待，
+ * 因此连接空闲一段时间后由 {@link JaCoCoAgentSessionManager} 关闭，下次dump时由管理器建立新会话。
+ */
+public class JaCoCoAgentSession {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    // dump数据量较大时读取可能较慢
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private final String host;
+    private final int port;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Socket socket;
+    private RemoteControlWriter writer;
+    private RemoteControlReader reader;
+    // 最近一次使用时间，用于关闭空闲连接
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+    // 已被关闭并从管理器移除
+    private boolean retired;
+
+    public JaCoCoAgentSession(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isConnected() {
+        Socket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    /**
+     * 导出执行数据，复用的连接已断开时自动重连后重试一次；读取超时不重试
+     *
+     * @param reset 导出后是否重置探针
+     * @return 本次导出的执行数据和session；会话已被关闭（空闲回收）时返回null，调用方需改用新会话
+     * @throws IOException 重连后仍失败
+     */
+    public ExecFileLoader dump(boolean reset) throws IOException {
+        lock.lock();
+        try {
+            // 已被关闭的会话不再重连，否则连接不受管理器跟踪，也不会被空闲回收
+            if (retired) {
+                return null;
+            }
+            boolean reused = isConnected();
+            try {
+                return doDump(reset);
+            } catch (SocketTimeoutException e) {
+                // 应用无响应，重试只会再等待一次超时
+                disconnect();
+                throw e;
+            } catch (IOException e) {
+                disconnect();
+                if (!reused) {
+                    throw e;
+                }
+            }
+            // 复用的连接可能已被对端关闭（如应用重启），重连后再试一次
+            try {
+                return doDump(reset);
+            } catch (IOException e) {
+                disconnect();
+                throw e;
+            }
+        } finally {
+            lastUsedMillis = System.currentTimeMillis();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 连接空闲超过指定时间时关闭；正在dump时不等待，直接跳过
+     *
+     * @param idleMillis 空闲时间
+     * @return 是否已关闭
+     */
+    public boolean closeIfIdle(long idleMillis) {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (System.currentTimeMillis() - lastUsedMillis < idleMillis) {
+                return false;
+            }
+            close();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 关闭会话，之后的dump返回null
+    public void close() {
+        lock.lock();
+        try {
+            retired = true;
+            disconnect();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 只断开连接，会话仍可重连
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 忽略关闭异常
+            }
+        }
+        socket = null;
+        writer = null;
+        reader = null;
+    }
+
+    private ExecFileLoader doDump(boolean reset) throws IOException {
+        ensureConnected();
+        ExecFileLoader result = new ExecFileLoader();
+        reader.setSessionInfoVisitor(result.getSessionInfoStore());
+        reader.setExecutionDataVisitor(result.getExecutionDataStore());
+        writer.visitDumpCommand(true, reset);
+        if (!reader.read()) {
+            throw new EOFException("TCPServer连接已关闭，端口：" + port);
+        }
+        return result;
+    }
+
+    // 建立连接并完成握手（RemoteControlWriter构造时写入头信息）
+    private void ensureConnected() throws IOException {
+        if (isConnected()) {
+            return;
+        }
+        Socket newSocket = new Socket();
+        try {
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            newSocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            newSocket.setTcpNoDelay(true);
+            newSocket.setKeepAlive(true);
+            writer = new RemoteControlWriter(newSocket.getOutputStream());
+            reader = new RemoteControlReader(newSocket.getInputStream());
+            socket = newSocket;
+        } catch (IOException e) {
+            newSocket.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.jacoco;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 项目级TCPServer连接管理
+ * 连续dump时复用同一连接；连接空闲超过一定时间后关闭，释放agent给其他客户端使用
+ */
+public class JaCoCoAgentSessionManager implements Disposable {
+
+    private static final String TARGET_HOST = "127.0.0.1";
+    // 空闲连接检查间隔（秒）
+    private static final long IDLE_CHECK_SECONDS = 2;
+    // 连接空闲超过该时间（毫秒）后关闭
+    private static final long IDLE_TIMEOUT_MILLIS = 5000;
+
+    private final Map<Integer, JaCoCoAgentSession> sessions = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> idleCheck;
+
+    // 获取项目的连接管理实例
+    public static JaCoCoAgentSessionManager getInstance(Project project) {
+        return project.getService(JaCoCoAgentSessionManager.class);
+    }
+
+    /**
+     * 判断端口是否被任一打开项目的连接占用
+     * agent同一时间只服务一个连接，此时探活握手不会有响应
+     */
+    public static boolean isSessionOpen(int port) {
+        for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+            if (!project.isDisposed() && getInstance(project).isConnected(port)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 通过长连接导出执行数据
+     *
+     * @param port  TCPServer端口
+     * @param reset 导出后是否重置探针
+     * @return 本次导出的执行数据和session
+     * @throws IOException 重连后仍失败
+     */
+    public ExecFileLoader dump(int port, boolean reset) throws IOException {
+        startIdleCheck();
+        while (true) {
+            JaCoCoAgentSession session = sessions.computeIfAbsent(port, p -> new JaCoCoAgentSession(TARGET_HOST, p));
+            ExecFileLoader result;
+            try {
+                result = session.dump(reset);
+            } catch (IOException e) {
+                sessions.remove(port, session);
+                throw e;
+            }
+            if (result != null) {
+                return result;
+            }
+            // 取到会话后、加锁前被空闲回收，换用新会话
+            sessions.remove(port, session);
+        }
+    }
+
+    public boolean isConnected(int port) {
+        JaCoCoAgentSession session = sessions.get(port);
+        return session != null && session.isConnected();
+    }
+
+    // 关闭端口上的连接（如应用重新启动前）
+    public void close(int port) {
+        JaCoCoAgentSession session = sessions.remove(port);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    private synchronized void startIdleCheck() {
+        if (idleCheck == null) {
+            idleCheck = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+                    this::closeIdleSessions, IDLE_CHECK_SECONDS, IDLE_CHECK_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    // 关闭空闲连接，下次dump时重新建立
+    private void closeIdleSessions() {
+        for (JaCoCoAgentSession session : sessions.values()) {
+            if (session.closeIfIdle(IDLE_TIMEOUT_MILLIS)) {
+                sessions.remove(session.getPort(), session);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+            idleCheck = null;
+        }
+        for (JaCoCoAgentSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+    }
+}
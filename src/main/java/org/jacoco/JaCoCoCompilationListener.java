@@ -0,0 +1,90 @@
+package org.jacoco;
+
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.compiler.CompilationStatusListener;
+import com.intellij.openapi.compiler.CompileContext;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import org.jacoco.engine.CoverageSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译监听：收集重新编译的class，编译成功后增量更新覆盖率报告
+ * 仅处理上次报告所分析的class目录下的输出，报告尚未生成时不做任何事；
+ * 删除源文件时没有编译输出，因此即使没有新的class也会更新一次，由引擎检查已删除的class文件
+ */
+public class JaCoCoCompilationListener implements CompilationStatusListener {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String NOTIFICATION_GROUP = "JaCoCo Coverage";
+    private static final String LOG_NOTIFICATION_GROUP = "JaCoCo Coverage Log";
+
+    private final Project project;
+    // class VM名称 -> 编译输出文件，编译失败时保留到下次成功编译
+    private final Map<String, File> pendingClasses = new ConcurrentHashMap<>();
+
+    public JaCoCoCompilationListener(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void fileGenerated(@NotNull String outputRoot, @NotNull String relativePath) {
+        if (!relativePath.endsWith(CLASS_SUFFIX)) {
+            return;
+        }
+        CoverageSnapshot snapshot = JaCoCoCoverageSummary.getInstance(project).getSnapshot();
+        if (snapshot == null || !isClassRoot(snapshot.module.classRoots, outputRoot)) {
+            return;
+        }
+        String vmName = relativePath.substring(0, relativePath.length() - CLASS_SUFFIX.length()).replace('\\', '/');
+        pendingClasses.put(vmName, new File(outputRoot, relativePath));
+    }
+
+    @Override
+    public void compilationFinished(boolean aborted, int errors, int warnings, @NotNull CompileContext compileContext) {
+        if (aborted || errors > 0 || JaCoCoCoverageSummary.getInstance(project).getSnapshot() == null) {
+            return;
+        }
+        Map<String, File> changedFiles = new HashMap<>(pendingClasses);
+        pendingClasses.keySet().removeAll(changedFiles.keySet());
+
+        new Task.Backgroundable(project, "增量更新覆盖率报告", false) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    String message = new JaCoCoFileProcessor(project, Constant.JACOCO_DATA_DIR).updateReport(changedFiles);
+                    showResult(LOG_NOTIFICATION_GROUP, message, NotificationType.INFORMATION);
+                } catch (IOException | RuntimeException e) {
+                    showResult(NOTIFICATION_GROUP, "报告增量更新失败：" + e, NotificationType.ERROR);
+                }
+            }
+        }.queue();
+    }
+
+    private void showResult(String groupId, String message, NotificationType type) {
+        NotificationGroupManager.getInstance().getNotificationGroup(groupId)
+                .createNotification(message, type)
+                .notify(project);
+    }
+
+    // 编译输出目录是否为报告分析的class目录之一
+    private static boolean isClassRoot(Iterable<File> classRoots, String outputRoot) {
+        Path output = Paths.get(outputRoot).toAbsolutePath().normalize();
+        for (File root : classRoots) {
+            if (root.isDirectory() && root.toPath().toAbsolutePath().normalize().equals(output)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
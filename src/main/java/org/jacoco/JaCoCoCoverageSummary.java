@@ -0,0 +1,112 @@
+package org.jacoco;
+
+import com.intellij.ide.projectView.ProjectView;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.engine.CoverageSnapshot;
+import org.jacoco.engine.CoverageSummaryTree;
+import org.jacoco.engine.IncrementalUpdate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 项目级覆盖率摘要服务
+ * 保存最近一次dump的覆盖率摘要，供Project视图显示百分比；
+ * 同时保存分析快照，供编译后增量更新报告
+ */
+public class JaCoCoCoverageSummary {
+
+    private final Project project;
+    private final CoverageSummaryTree tree = new CoverageSummaryTree();
+    private volatile CoverageSnapshot snapshot;
+    // 完整生成和增量更新都会替换快照并写同一个HTML目录，需串行执行
+    private final Object reportLock = new Object();
+
+    public JaCoCoCoverageSummary(Project project) {
+        this.project = project;
+    }
+
+    // 获取项目的覆盖率摘要实例
+    public static JaCoCoCoverageSummary getInstance(Project project) {
+        return project.getService(JaCoCoCoverageSummary.class);
+    }
+
+    // 报告生成锁，完整生成和增量更新共用
+    public Object getReportLock() {
+        return reportLock;
+    }
+
+    public CoverageSummaryTree getTree() {
+        return tree;
+    }
+
+    // 获取最近一次分析快照，未生成过报告时为null
+    public CoverageSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(CoverageSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 用完整分析结果刷新摘要
+     *
+     * @param bundle 最近一次分析的覆盖率
+     */
+    public void replaceAll(IBundleCoverage bundle) {
+        tree.replaceAll(collectClasses(bundle));
+        refreshProjectView();
+    }
+
+    /**
+     * 只更新部分class的摘要
+     *
+     * @param classes 发生变化的class覆盖率
+     */
+    public void update(Collection<? extends IClassCoverage> classes) {
+        tree.update(classes);
+        refreshProjectView();
+    }
+
+    /**
+     * 应用增量分析结果
+     *
+     * @param update 重新编译后的增量结果
+     */
+    public void apply(IncrementalUpdate update) {
+        tree.update(update.updatedClasses);
+        for (String removed : update.removedClasses) {
+            tree.remove(removed);
+        }
+        refreshProjectView();
+    }
+
+    // 清空摘要（如删除报告后）
+    public void clear() {
+        snapshot = null;
+        tree.clear();
+        refreshProjectView();
+    }
+
+    private List<IClassCoverage> collectClasses(IBundleCoverage bundle) {
+        List<IClassCoverage> classes = new ArrayList<>();
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            classes.addAll(packageCoverage.getClasses());
+        }
+        return classes;
+    }
+
+    private void refreshProjectView() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (!project.isDisposed()) {
+                ProjectView.getInstance(project).refresh();
+            }
+        });
+    }
+}
@@ -2,25 +2,30 @@ package org.jacoco;
 
 
 import com.intellij.ide.BrowserUtil;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
-import org.jacoco.core.analysis.Analyzer;
-import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.*;
-import org.jacoco.core.runtime.RemoteControlReader;
-import org.jacoco.core.runtime.RemoteControlWriter;
-import org.jacoco.report.DirectorySourceFileLocator;
-import org.jacoco.report.FileMultiReportOutput;
-import org.jacoco.report.IReportVisitor;
-import org.jacoco.report.html.HTMLFormatter;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.engine.CoverageReportEngine;
+import org.jacoco.engine.CoverageSnapshot;
+import org.jacoco.engine.IncrementalUpdate;
+import org.jacoco.engine.ReportModule;
+import org.jacoco.util.ExecFileCompactor;
 import org.jacoco.util.PluginCacheManager;
 
 import javax.swing.*;
 import java.io.*;
-import java.net.Socket;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * JaCoCo文件处理器（终极兼容版）
@@ -34,12 +39,19 @@ import java.util.Objects;
  */
 public class JaCoCoFileProcessor {
 
-    private static final String TARGET_HOST = "localhost"; // 目标应用 IP
+    private static final String EXEC_FILE_NAME = "jacoco.exec";
+    private static final String REPORT_NAME = "My Application";
+    // 并行读取exec文件、生成报告的线程数
+    private static final int WORKER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    // 正在压缩的exec文件，避免同一文件被重复压缩
+    private static final Set<String> COMPACTING_FILES = ConcurrentHashMap.newKeySet();
+    private static final String NOTIFICATION_GROUP = "JaCoCo Coverage";
 
     private final Project project;
     private final JaCoCoPortSettings settings;
     private final String jacocoDataDir;
     private final String htmlDirName = "html-report";
+    private final CoverageReportEngine reportEngine = new CoverageReportEngine(WORKER_THREADS);
 
     public JaCoCoFileProcessor(Project project, String jacocoDataDir) {
         this.project = project;
@@ -58,24 +70,33 @@ public class JaCoCoFileProcessor {
     public String dumpTcpserverData() {
         int tcpPort = settings.getTcpserverPort();
         if (tcpPort == -1) {
-            System.out.println("错误：未找到项目分配的TCPServer端口！请先启动项目");
+            // 非tcpserver模式（如文件输出）没有端口，直接读取exec文件，需先完成压缩再读取
+            compactExecFile(false);
+            return createReportFromExecFile();
         }
+        compactExecFileIfNeeded();
 
-        try (Socket socket = new Socket(TARGET_HOST, tcpPort)) {
-            RemoteControlWriter writer = new RemoteControlWriter(socket.getOutputStream());
-            RemoteControlReader reader = new RemoteControlReader(socket.getInputStream());
-
-            ExecutionDataStore currentExecutionData = new ExecutionDataStore();
-            SessionInfoStore currentSessionInfos = new SessionInfoStore();
-
-            reader.setSessionInfoVisitor(currentSessionInfos);
-            reader.setExecutionDataVisitor(currentExecutionData);
-
-            writer.visitDumpCommand(true, false); // reset=false, dump=true
-            reader.read();
-            return createReport(currentExecutionData, currentSessionInfos);
+        try {
+            // 复用与应用的长连接，避免每次dump重新建立连接和握手
+            ExecFileLoader dumped = JaCoCoAgentSessionManager.getInstance(project).dump(tcpPort, false);
+            return createReport(dumped.getExecutionDataStore(), dumped.getSessionInfoStore());
         } catch (Exception e) {
-            return "报告生成失败";
+            return "报告生成失败：" + e.getMessage();
+        }
+    }
+
+    // 从exec文件生成报告
+    private String createReportFromExecFile() {
+        String outputPath = settings.getOutputPath();
+        File execFile = outputPath == null ? null : new File(outputPath);
+        if (execFile == null || !execFile.isFile()) {
+            return "错误：未找到项目分配的TCPServer端口，也未找到exec文件！请先启动项目";
+        }
+        try {
+            ExecFileLoader loader = reportEngine.loadExecutionData(List.of(execFile));
+            return createReport(loader.getExecutionDataStore(), loader.getSessionInfoStore());
+        } catch (IOException e) {
+            return "报告生成失败：" + e.getMessage();
         }
     }
 
@@ -87,10 +108,6 @@ public class JaCoCoFileProcessor {
      * @throws IOException
      */
     public String createReport(ExecutionDataStore executionData, SessionInfoStore sessionInfos) throws IOException {
-        final CoverageBuilder coverageBuilder = new CoverageBuilder();
-        final Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
-
-
         String dataDirPath = getJacocoDataDirPath();
         String htmlOutputDirPath = Paths.get(dataDirPath).resolve(htmlDirName).toString();
         PathResult ideaCacheDir = PluginCacheManager.getProjectIdeaCacheDir(project);
@@ -104,31 +121,151 @@ public class JaCoCoFileProcessor {
         if (!classesDir.exists()) {
             return "class 目录不存在，无法生成详细报告";
         }
-        analyzer.analyzeAll(classesDir);
 
-        IBundleCoverage bundleCoverage = coverageBuilder.getBundle("My Application");
+        List<File> classRoots = new ArrayList<>();
+        classRoots.add(classesDir);
+        classRoots.addAll(getExtraClassRoots());
 
-        // 创建报告输出目录
         File reportDirFile = new File(htmlOutputDirPath);
-        reportDirFile.mkdirs();
+        ReportModule module = new ReportModule(REPORT_NAME, classRoots, List.of(new File(srcDirPath)), reportDirFile);
+        JaCoCoCoverageSummary summary = JaCoCoCoverageSummary.getInstance(project);
+        synchronized (summary.getReportLock()) {
+            CoverageSnapshot snapshot = reportEngine.analyzeSnapshot(module, executionData, sessionInfos);
+            IBundleCoverage bundleCoverage = snapshot.toBundle();
+            summary.setSnapshot(snapshot);
+            summary.replaceAll(bundleCoverage);
+            reportEngine.render(module, bundleCoverage, executionData, sessionInfos);
+        }
+        return "HTML 报告已生成: \n" + reportDirFile.getAbsolutePath();
+    }
 
-        HTMLFormatter htmlFormatter = new HTMLFormatter();
-        FileMultiReportOutput output = new FileMultiReportOutput(reportDirFile);
+    // 获取配置的附加class路径（依赖jar、fat jar），不存在的路径忽略
+    private List<File> getExtraClassRoots() {
+        List<File> roots = new ArrayList<>();
+        String extraClassPaths = settings.getExtraClassPaths();
+        if (extraClassPaths == null || extraClassPaths.isBlank()) {
+            return roots;
+        }
+        for (String path : extraClassPaths.split(File.pathSeparator)) {
+            File root = new File(path.trim());
+            if (!path.isBlank() && root.exists()) {
+                roots.add(root);
+            }
+        }
+        return roots;
+    }
 
+    /**
+     * 编译后增量更新报告：只重新分析重新编译的class，只重写受影响包的页面
+     *
+     * @param changedFiles class VM名称 -> 编译输出的class文件
+     * @return 结果信息
+     * @throws IOException 分析或写入失败
+     */
+    public String updateReport(Map<String, File> changedFiles) throws IOException {
+        JaCoCoCoverageSummary summary = JaCoCoCoverageSummary.getInstance(project);
+        CoverageSnapshot snapshot = summary.getSnapshot();
+        if (snapshot == null) {
+            return "尚未生成报告，跳过增量更新";
+        }
+        // 与完整生成共用同一把锁，避免两者交替写HTML目录
+        synchronized (summary.getReportLock()) {
+            // 等待期间报告已重新生成（已包含本次编译结果）或已被删除
+            if (summary.getSnapshot() != snapshot) {
+                return "报告已重新生成，跳过增量更新";
+            }
+            IncrementalUpdate update = reportEngine.updateClasses(snapshot, changedFiles);
+            if (update.isEmpty()) {
+                return "没有需要更新的class";
+            }
+            reportEngine.renderPackages(snapshot, update.affectedPackages);
+            summary.apply(update);
+            return String.format("报告已增量更新：%d个class，删除%d个class，%d个包",
+                    update.updatedClasses.size(), update.removedClasses.size(), update.affectedPackages.size());
+        }
+    }
 
+    /**
+     * 手动压缩：把数据目录下所有exec文件合并为一个jacoco.exec
+     */
+    public String compactExecFiles() {
+        File dataDir = new File(getJacocoDataDirPath());
+        File[] execFiles = dataDir.listFiles((dir, name) -> name.endsWith(".exec"));
+        if (execFiles == null || execFiles.length == 0) {
+            return "未找到exec文件，无需压缩！";
+        }
+        File output = new File(dataDir, EXEC_FILE_NAME);
+        if (!COMPACTING_FILES.add(output.getAbsolutePath())) {
+            return "exec文件正在压缩中，请稍后再试";
+        }
         try {
-            IReportVisitor visitor = htmlFormatter.createVisitor(output);
-
-            // ✅ 关键修复：传入真实的 sessionInfos，不能为 null！
-            visitor.visitInfo(sessionInfos.getInfos(), executionData.getContents());
+            long before = 0;
+            List<File> inputs = new ArrayList<>();
+            for (File execFile : execFiles) {
+                before += execFile.length();
+                inputs.add(execFile);
+            }
+            int sessionCount = ExecFileCompactor.compact(inputs, output, WORKER_THREADS);
+            settings.setCompactedExecSize(output.length());
+            // 合并结果已写入jacoco.exec，其余输入已被清空，删除空文件（压缩后又被追加的保留）
+            for (File execFile : execFiles) {
+                if (!execFile.getAbsoluteFile().equals(output.getAbsoluteFile()) && execFile.length() == 0) {
+                    execFile.delete();
+                }
+            }
+            return String.format("压缩完成：%d个文件、%d个session合并为1个\n大小：%d KB -> %d KB",
+                    execFiles.length, sessionCount, before / 1024, output.length() / 1024);
+        } catch (IOException e) {
+            return "压缩失败：" + e.getMessage();
+        } finally {
+            COMPACTING_FILES.remove(output.getAbsolutePath());
+        }
+    }
 
-            visitor.visitBundle(bundleCoverage, new DirectorySourceFileLocator(new File(srcDirPath), "utf-8", 4));
-            visitor.visitEnd();
+    /**
+     * exec文件超过配置阈值时，在后台线程自动压缩
+     */
+    public void compactExecFileIfNeeded() {
+        compactExecFile(true);
+    }
 
-        } finally {
-            output.close();
+    /**
+     * exec文件超过配置阈值时自动压缩，失败时通过通知提示
+     *
+     * @param background 是否在后台线程执行；否则在当前线程执行，返回时已压缩完成
+     */
+    private void compactExecFile(boolean background) {
+        String outputPath = settings.getOutputPath();
+        if (outputPath == null) {
+            return;
+        }
+        File execFile = new File(outputPath);
+        long thresholdBytes = settings.getCompactThresholdMb() * 1024L * 1024L;
+        if (!ExecFileCompactor.needsCompaction(execFile, thresholdBytes, settings.getCompactedExecSize())) {
+            return;
+        }
+        // 已在压缩中的文件不重复压缩，读取时会等待压缩完成
+        String key = execFile.getAbsolutePath();
+        if (!COMPACTING_FILES.add(key)) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                ExecFileCompactor.compact(List.of(execFile), execFile, WORKER_THREADS);
+                settings.setCompactedExecSize(execFile.length());
+            } catch (IOException e) {
+                NotificationGroupManager.getInstance().getNotificationGroup(NOTIFICATION_GROUP)
+                        .createNotification("exec文件自动压缩失败：" + e, NotificationType.ERROR)
+                        .notify(project);
+            } finally {
+                COMPACTING_FILES.remove(key);
+            }
+        };
+        if (background) {
+            ApplicationManager.getApplication().executeOnPooledThread(task);
+        } else {
+            task.run();
         }
-        return "HTML 报告已生成: \n" + reportDirFile.getAbsolutePath();
     }
 
     // 删除生成文件
@@ -148,7 +285,10 @@ public class JaCoCoFileProcessor {
         if (!dataDir.exists()) {
             return "未找到" + jacocoDataDir + "目录，无需删除！";
         }
+        // 先清空快照，等待中的增量更新不再写入报告目录
+        JaCoCoCoverageSummary.getInstance(project).clear();
         boolean deleteSuccess = deleteDir(dataDir);
+        settings.setCompactedExecSize(0);
         if (deleteSuccess) {
             return jacocoDataDir + "目录下所有Jacoco文件删除成功！";
         } else {
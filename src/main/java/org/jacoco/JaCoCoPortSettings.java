@@ -8,6 +8,10 @@ import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 独立的JaCoCo端口配置组件（不继承任何final类）
  * 存储项目的TCPServer端口和启用状态
@@ -67,6 +71,80 @@ public class JaCoCoPortSettings implements PersistentStateComponent<JaCoCoPortSe
         state.outputPath = path;
     }
 
+    // 获取exec文件自动压缩阈值（MB）
+    public int getCompactThresholdMb() {
+        return state.compactThresholdMb;
+    }
+
+    // 设置exec文件自动压缩阈值（MB），小于等于0表示关闭
+    public void setCompactThresholdMb(int thresholdMb) {
+        state.compactThresholdMb = thresholdMb;
+    }
+
+    // 获取上次压缩后的exec文件大小（字节）
+    public long getCompactedExecSize() {
+        return state.compactedExecSize;
+    }
+
+    // 记录压缩后的exec文件大小，文件再增长一个阈值后才会再次自动压缩
+    public void setCompactedExecSize(long size) {
+        state.compactedExecSize = size;
+    }
+
+    // 获取附加的class路径（依赖jar、fat jar等，系统路径分隔符分隔）
+    public String getExtraClassPaths() {
+        return state.extraClassPaths;
+    }
+
+    // 设置附加的class路径
+    public void setExtraClassPaths(String extraClassPaths) {
+        state.extraClassPaths = extraClassPaths;
+    }
+
+    // 获取所有Agent配置
+    public List<AgentProfile> getAgentProfiles() {
+        return state.agentProfiles;
+    }
+
+    // 按名称获取Agent配置，不存在时返回null
+    public AgentProfile findAgentProfile(String name) {
+        for (AgentProfile profile : state.agentProfiles) {
+            if (profile.name.equals(name)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    // 新增或替换同名Agent配置
+    public void saveAgentProfile(AgentProfile profile) {
+        AgentProfile existing = findAgentProfile(profile.name);
+        if (existing != null) {
+            state.agentProfiles.set(state.agentProfiles.indexOf(existing), profile);
+        } else {
+            state.agentProfiles.add(profile);
+        }
+    }
+
+    // 获取运行配置使用的Agent配置名称，未指定时使用默认配置
+    public String getProfileName(String runConfigurationName) {
+        return state.runConfigurationProfiles.getOrDefault(runConfigurationName, AgentProfile.DEFAULT_PROFILE);
+    }
+
+    // 设置运行配置使用的Agent配置
+    public void setProfileName(String runConfigurationName, String profileName) {
+        state.runConfigurationProfiles.put(runConfigurationName, profileName);
+    }
+
+    // 获取运行配置实际使用的Agent配置，配置已被删除时退回默认配置
+    public AgentProfile getAgentProfile(String runConfigurationName) {
+        AgentProfile profile = findAgentProfile(getProfileName(runConfigurationName));
+        if (profile == null) {
+            profile = findAgentProfile(AgentProfile.DEFAULT_PROFILE);
+        }
+        return profile != null ? profile : new AgentProfile(AgentProfile.DEFAULT_PROFILE);
+    }
+
     // ========== 状态类 ==========
     public static class State {
         // 启用状态
@@ -75,5 +153,15 @@ public class JaCoCoPortSettings implements PersistentStateComponent<JaCoCoPortSe
         public int tcpserverPort = -1;
         // Exec文件输出路径
         public String outputPath =  "jacoco.exec";
+        // exec文件超过该大小（MB）后自动后台压缩，小于等于0表示关闭
+        public int compactThresholdMb = 32;
+        // 上次压缩后的exec文件大小（字节）
+        public long compactedExecSize = 0;
+        // 附加分析的class路径（jar/fat jar/class目录），系统路径分隔符分隔
+        public String extraClassPaths = "";
+        // Agent配置列表
+        public List<AgentProfile> agentProfiles = AgentProfile.builtinProfiles();
+        // 运行配置名称 -> Agent配置名称
+        public Map<String, String> runConfigurationProfiles = new HashMap<>();
     }
 }
@@ -0,0 +1,97 @@
+package org.jacoco;
+
+import com.intellij.ide.projectView.PresentationData;
+import com.intellij.ide.projectView.ProjectViewNode;
+import com.intellij.ide.projectView.ProjectViewNodeDecorator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaDirectoryService;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiPackage;
+import org.jacoco.engine.CoverageSnapshot;
+import org.jacoco.engine.CoverageSummaryTree;
+
+import java.io.File;
+
+/**
+ * Project视图装饰：在包和类节点后显示行覆盖率
+ * 只有展开可见的节点才会被装饰，包的汇总值也只在此时计算；
+ * 摘要按包名汇总，只装饰报告源码目录下的非测试代码，其他模块或测试目录中的同名包不显示
+ */
+public class JaCoCoProjectViewDecorator implements ProjectViewNodeDecorator {
+
+    @Override
+    public void decorate(ProjectViewNode<?> node, PresentationData data) {
+        Project project = node.getProject();
+        if (project == null || project.isDisposed()) {
+            return;
+        }
+        JaCoCoCoverageSummary coverageSummary = JaCoCoCoverageSummary.getInstance(project);
+        Object value = node.getValue();
+        if (!(value instanceof PsiElement) || !isReportedSource(project, coverageSummary.getSnapshot(), (PsiElement) value)) {
+            return;
+        }
+        CoverageSummaryTree.Summary summary = getSummary(coverageSummary.getTree(), value);
+        if (summary != null) {
+            data.setLocationString(String.format("%.0f%% 行覆盖 (%d/%d)",
+                    summary.getPercent(), summary.coveredLines, summary.getTotalLines()));
+        }
+    }
+
+    // 节点是否位于报告的源码目录下，且不是测试代码
+    private boolean isReportedSource(Project project, CoverageSnapshot snapshot, PsiElement element) {
+        if (snapshot == null || !element.isValid()) {
+            return false;
+        }
+        VirtualFile file = element instanceof PsiDirectory ? ((PsiDirectory) element).getVirtualFile()
+                : element.getContainingFile() == null ? null : element.getContainingFile().getVirtualFile();
+        if (file == null || ProjectFileIndex.getInstance(project).isInTestSourceContent(file)) {
+            return false;
+        }
+        File ioFile = VfsUtilCore.virtualToIoFile(file);
+        for (File sourceRoot : snapshot.module.sourceRoots) {
+            if (FileUtil.isAncestor(sourceRoot, ioFile, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CoverageSummaryTree.Summary getSummary(CoverageSummaryTree tree, Object value) {
+        if (value instanceof PsiDirectory) {
+            PsiPackage psiPackage = JavaDirectoryService.getInstance().getPackage((PsiDirectory) value);
+            // 源码根目录（默认包）不显示，避免与模块总览混淆
+            if (psiPackage == null || psiPackage.getQualifiedName().isEmpty()) {
+                return null;
+            }
+            return tree.getPackageSummary(psiPackage.getQualifiedName());
+        }
+        if (value instanceof PsiClass) {
+            PsiClass psiClass = (PsiClass) value;
+            PsiFile file = psiClass.getContainingFile();
+            if (psiClass.getContainingClass() != null || !(file instanceof PsiJavaFile)) {
+                return null;
+            }
+            return tree.getClassSummary(((PsiJavaFile) file).getPackageName(), psiClass.getName());
+        }
+        if (value instanceof PsiJavaFile) {
+            PsiJavaFile javaFile = (PsiJavaFile) value;
+            CoverageSummaryTree.Summary total = null;
+            for (PsiClass psiClass : javaFile.getClasses()) {
+                CoverageSummaryTree.Summary summary = tree.getClassSummary(javaFile.getPackageName(), psiClass.getName());
+                if (summary != null) {
+                    total = total == null ? summary : total.plus(summary);
+                }
+            }
+            return total;
+        }
+        return null;
+    }
+}
@@ -70,10 +70,18 @@ public class JaCoCoRunConfigurationHandler extends JavaProgramPatcher {
                         return;
                     }
 
-                    // 4. 为项目分配唯一端口（同一项目固定端口）
-                    int tcpPort = getProjectPort(projectId);
-                    if (tcpPort == -1) {
-                        return;
+                    // 4. 获取运行配置选择的Agent配置
+                    AgentProfile profile = settings.getAgentProfile(runConfiguration.getName());
+
+                    // 为项目分配唯一端口（同一项目固定端口），仅tcpserver模式需要
+                    int tcpPort = -1;
+                    if (profile.isTcpserver()) {
+                        tcpPort = getProjectPort(projectId);
+                        if (tcpPort == -1) {
+                            return;
+                        }
+                        // 应用即将重新启动，旧进程的长连接已无效
+                        JaCoCoAgentSessionManager.getInstance(project).close(tcpPort);
                     }
 
                     // 5. 构建Jacoco数据目录
@@ -93,15 +101,16 @@ public class JaCoCoRunConfigurationHandler extends JavaProgramPatcher {
                     String execFilePath = FileUtil.toSystemDependentName(jacocoDataDir.resolve("jacoco.exec").toString());
                     settings.setOutputPath(execFilePath);
                     settings.setTcpserverPort(tcpPort);
+                    // 启动前检查exec文件大小，超过阈值则后台压缩
+                    new JaCoCoFileProcessor(project, Constant.JACOCO_DATA_DIR).compactExecFileIfNeeded();
 
                     String packagePath = getPackage(javaParameters);
-                    // 8. 构建动态端口的TCPServer Agent参数
-                    String jacocoAgentParams = String.format(
-                            "-javaagent:%s=output=tcpserver,port=%d,address=127.0.0.1,includes=%s,destfile=%s,append=true",
+                    // 8. 按Agent配置构建参数
+                    String jacocoAgentParams = profile.toAgentParameter(
                             FileUtil.toSystemDependentName(agentJarPath),
                             tcpPort,
-                            packagePath,
-                            execFilePath
+                            execFilePath,
+                            packagePath
                     );
 
                     resolvePathsByMainClass(project, mainClass);
@@ -188,6 +197,10 @@ public class JaCoCoRunConfigurationHandler extends JavaProgramPatcher {
      * @return true=是JaCoCo TCPServer，false=非JaCoCo服务
      */
     private boolean isJaCoCoTcpserverPort(int port) {
+        // 插件自身持有长连接时agent不会响应新的握手
+        if (JaCoCoAgentSessionManager.isSessionOpen(port)) {
+            return true;
+        }
         Socket socket = null;
         try {
             // 建立TCP连接（超时1秒）
@@ -2,10 +2,15 @@ package org.jacoco;
 
 
 import com.intellij.ide.BrowserUtil;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.ui.DocumentAdapter;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
 import java.awt.*;
+import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -15,6 +20,9 @@ public class JaCoCoToolWindowPanel {
     private final JButton generateHtmlButton;
     private final JButton openHtmlButton;
     private final JButton deleteFilesButton;
+    private final JButton compactButton;
+    private final JTextField extraClassPathsField;
+    private final JSpinner compactThresholdSpinner;
     private final JTextArea parseResultArea;
     private final Project project;
     private final JaCoCoFileProcessor jacocoFileProcessor;
@@ -35,6 +43,14 @@ public class JaCoCoToolWindowPanel {
         generateHtmlButton = new JButton("生成报告");
         deleteFilesButton = new JButton("删除报告");
         openHtmlButton = new JButton("打开报告");
+        compactButton = new JButton("压缩数据");
+
+        extraClassPathsField = new JTextField(settings.getExtraClassPaths(), 40);
+        extraClassPathsField.setToolTipText("依赖jar或Spring Boot fat jar路径，多个路径用" + File.pathSeparator + "分隔");
+
+        compactThresholdSpinner = new JSpinner(new SpinnerNumberModel(
+                Math.max(0, settings.getCompactThresholdMb()), 0, 10240, 8));
+        compactThresholdSpinner.setToolTipText("exec文件超过该大小且自上次压缩后又增长该大小时自动压缩，0表示关闭");
 
         parseResultArea = new JTextArea(15, 40);
         parseResultArea.setEditable(false);
@@ -47,12 +63,24 @@ public class JaCoCoToolWindowPanel {
         setButtonStyle(generateHtmlButton);
         setButtonStyle(openHtmlButton);
         setButtonStyle(deleteFilesButton);
+        setButtonStyle(compactButton);
 
         // 实时同步配置
         enableAgentCheckBox.addActionListener(e -> {
             settings.setEnableJaCoCoAgent(enableAgentCheckBox.isSelected());
         });
 
+        extraClassPathsField.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                settings.setExtraClassPaths(extraClassPathsField.getText().trim());
+            }
+        });
+
+        compactThresholdSpinner.addChangeListener(e -> {
+            settings.setCompactThresholdMb((Integer) compactThresholdSpinner.getValue());
+        });
+
         // 构建布局
         mainPanel = new JPanel();
         mainPanel.setLayout(new BorderLayout());
@@ -74,6 +102,18 @@ public class JaCoCoToolWindowPanel {
         portPanel.add(portLabel);
         topPanel.add(portPanel);
 
+        // 附加class路径（jar）
+        JPanel classPathPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        classPathPanel.add(new JLabel("附加class路径(jar)："));
+        classPathPanel.add(extraClassPathsField);
+        topPanel.add(classPathPanel);
+
+        // exec文件自动压缩阈值
+        JPanel compactPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        compactPanel.add(new JLabel("自动压缩阈值(MB)："));
+        compactPanel.add(compactThresholdSpinner);
+        topPanel.add(compactPanel);
+
         // 功能按钮区域
         JPanel buttonPanel = new JPanel();
         buttonPanel.setLayout(new GridLayout(1, 4, 10, 0));
@@ -81,6 +121,7 @@ public class JaCoCoToolWindowPanel {
         buttonPanel.add(generateHtmlButton);
         buttonPanel.add(openHtmlButton);
         buttonPanel.add(deleteFilesButton);
+        buttonPanel.add(compactButton);
 
         // 结果展示区域
         JPanel resultPanel = new JPanel(new BorderLayout());
@@ -91,6 +132,7 @@ public class JaCoCoToolWindowPanel {
         JPanel contentPanel = new JPanel();
         contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
         contentPanel.add(topPanel);
+        contentPanel.add(new JaCoCoAgentProfilePanel(project).getPanel());
 
         JSeparator separator1 = new JSeparator();
         contentPanel.add(Box.createVerticalStrut(8));
@@ -118,7 +160,8 @@ public class JaCoCoToolWindowPanel {
         if (port == -1) {
             portLabel.setText("当前项目TCPServer端口：未分配（请启动项目）");
         } else {
-            portLabel.setText(String.format("当前项目TCPServer端口：%d（专属端口，无冲突）", port));
+            boolean connected = JaCoCoAgentSessionManager.getInstance(project).isConnected(port);
+            portLabel.setText(String.format("当前项目TCPServer端口：%d（专属端口，无冲突）%s", port, connected ? "，已连接" : ""));
         }
     }
 
@@ -134,16 +177,38 @@ public class JaCoCoToolWindowPanel {
     // 绑定按钮事件
     private void bindButtonEvents(JLabel portLabel) {
         // 生成HTML报告
+        // dump和分析可能较慢（应用无响应时需等待读取超时），在后台线程执行
         generateHtmlButton.addActionListener(e -> {
-            String result = jacocoFileProcessor.dumpTcpserverData();
-            parseResultArea.setText(result);
-            updatePortLabel(portLabel);
+            generateHtmlButton.setEnabled(false);
+            parseResultArea.setText("正在生成报告...");
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                String result = jacocoFileProcessor.dumpTcpserverData();
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    parseResultArea.setText(result);
+                    updatePortLabel(portLabel);
+                    generateHtmlButton.setEnabled(true);
+                });
+            });
         });
         // 生成HTML报告
         openHtmlButton.addActionListener(e -> {
             jacocoFileProcessor.openHtml();
         });
 
+        // 压缩exec文件
+        // 需等待agent释放文件锁并读写整个文件，在后台线程执行
+        compactButton.addActionListener(e -> {
+            compactButton.setEnabled(false);
+            parseResultArea.setText("正在压缩exec文件...");
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                String result = jacocoFileProcessor.compactExecFiles();
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    parseResultArea.setText(result);
+                    compactButton.setEnabled(true);
+                });
+            });
+        });
+
         // 删除生成文件
         deleteFilesButton.addActionListener(e -> {
             String result = jacocoFileProcessor.deleteJacocoGeneratedFiles();
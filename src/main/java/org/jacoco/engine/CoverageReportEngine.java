@@ -0,0 +1,342 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.report.DirectorySourceFileLocator;
+import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.MultiSourceFileLocator;
+import org.jacoco.report.html.HTMLFormatter;
+import org.jacoco.util.ExecFileCompactor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 覆盖率报告引擎（与IDE无关）
+ * 负责 读取exec -> 分析class -> 生成HTML 的完整流程，插件和命令行共用
+ */
+public class CoverageReportEngine {
+
+    private static final String SOURCE_ENCODING = "utf-8";
+    private static final int TAB_WIDTH = 4;
+    // HTML报告中默认包和静态资源的目录名
+    private static final String DEFAULT_PACKAGE_FOLDER = "default";
+    private static final String RESOURCES_FOLDER = "jacoco-resources";
+
+    private final int threads;
+    private final JarAnalysisCache jarCache;
+
+    public CoverageReportEngine(int threads) {
+        this(threads, JarAnalysisCache.shared());
+    }
+
+    public CoverageReportEngine(int threads, JarAnalysisCache jarCache) {
+        this.threads = Math.max(1, threads);
+        this.jarCache = jarCache;
+    }
+
+    /**
+     * 并行读取并合并多个exec文件
+     *
+     * @param execFiles exec文件列表
+     * @return 合并后的数据
+     * @throws IOException 读取失败
+     */
+    public ExecFileLoader loadExecutionData(List<File> execFiles) throws IOException {
+        return ExecFileCompactor.loadParallel(execFiles, threads);
+    }
+
+    /**
+     * 分析模块的所有class目录和jar（jar结果按内容hash缓存）
+     *
+     * @param module        模块
+     * @param executionData 执行数据
+     * @return 模块覆盖率
+     * @throws IOException class读取失败
+     */
+    public IBundleCoverage analyze(ReportModule module, ExecutionDataStore executionData) throws IOException {
+        return analyzeClasses(module, executionData, null).getBundle(module.name);
+    }
+
+    /**
+     * 分析模块并保留每个class的结果，供编译后增量更新
+     *
+     * @param module        模块
+     * @param executionData 执行数据
+     * @param sessionInfos  session信息
+     * @return 分析快照
+     * @throws IOException class读取失败
+     */
+    public CoverageSnapshot analyzeSnapshot(ReportModule module, ExecutionDataStore executionData,
+                                            SessionInfoStore sessionInfos) throws IOException {
+        Map<String, File> classDirectories = new HashMap<>();
+        CoverageBuilder coverageBuilder = analyzeClasses(module, executionData, classDirectories);
+        return new CoverageSnapshot(module, executionData, sessionInfos, coverageBuilder.getClasses(),
+                classDirectories);
+    }
+
+    /**
+     * 增量分析：只重新分析被重新编译的class，并结合快照中的执行数据
+     * 删除源文件时编译器不会通知class被删除，因此还会检查快照中来自class目录的class文件是否仍然存在；
+     * 来自jar的class无法以此检测，直到下次完整生成报告
+     *
+     * @param snapshot     分析快照
+     * @param changedFiles class VM名称 -> class文件，文件不存在表示class已删除
+     * @return 增量结果
+     * @throws IOException class读取失败
+     */
+    public IncrementalUpdate updateClasses(CoverageSnapshot snapshot, Map<String, File> changedFiles) throws IOException {
+        List<IClassCoverage> updated = new ArrayList<>();
+        Set<String> removed = new HashSet<>();
+        Set<String> affectedPackages = new HashSet<>();
+        for (Map.Entry<String, File> entry : changedFiles.entrySet()) {
+            String vmName = entry.getKey();
+            File classFile = entry.getValue();
+            IClassCoverage coverage = null;
+            if (classFile.isFile()) {
+                CoverageBuilder coverageBuilder = new CoverageBuilder();
+                new Analyzer(snapshot.executionData, coverageBuilder)
+                        .analyzeClass(Files.readAllBytes(classFile.toPath()), classFile.getPath());
+                for (IClassCoverage classCoverage : coverageBuilder.getClasses()) {
+                    coverage = classCoverage;
+                }
+            }
+            if (coverage != null) {
+                snapshot.put(coverage, findClassDirectory(snapshot.module, classFile));
+                updated.add(coverage);
+            } else if (snapshot.remove(vmName)) {
+                removed.add(vmName);
+            } else {
+                continue;
+            }
+            affectedPackages.add(packageOf(vmName));
+        }
+        // 只检查文件是否存在，不读取内容
+        for (Map.Entry<String, File> entry : snapshot.getClassDirectories().entrySet()) {
+            String vmName = entry.getKey();
+            if (!changedFiles.containsKey(vmName) && !new File(entry.getValue(), vmName + ".class").isFile()
+                    && snapshot.remove(vmName)) {
+                removed.add(vmName);
+                affectedPackages.add(packageOf(vmName));
+            }
+        }
+        return new IncrementalUpdate(updated, removed, affectedPackages);
+    }
+
+    private static String packageOf(String vmName) {
+        int slash = vmName.lastIndexOf('/');
+        return slash < 0 ? "" : vmName.substring(0, slash);
+    }
+
+    private static File findClassDirectory(ReportModule module, File classFile) {
+        for (File classRoot : module.classRoots) {
+            if (classRoot.isDirectory() && classFile.toPath().startsWith(classRoot.toPath())) {
+                return classRoot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param classDirectories 不为null时记录每个class所在的class目录
+     */
+    private CoverageBuilder analyzeClasses(ReportModule module, ExecutionDataStore executionData,
+                                           Map<String, File> classDirectories) throws IOException {
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        for (File classRoot : module.classRoots) {
+            if (!classRoot.exists()) {
+                throw new IOException("class 路径不存在: " + classRoot.getAbsolutePath());
+            }
+            if (JarAnalysisCache.isArchive(classRoot)) {
+                jarCache.analyze(classRoot, executionData, coverageBuilder);
+            } else if (classDirectories == null) {
+                new Analyzer(executionData, coverageBuilder).analyzeAll(classRoot);
+            } else {
+                new Analyzer(executionData, coverage -> {
+                    classDirectories.put(coverage.getName(), classRoot);
+                    coverageBuilder.visitCoverage(coverage);
+                }).analyzeAll(classRoot);
+            }
+        }
+        return coverageBuilder;
+    }
+
+    /**
+     * 生成模块的HTML报告
+     *
+     * @param module        模块
+     * @param bundle        模块覆盖率
+     * @param executionData 执行数据
+     * @param sessionInfos  session信息
+     * @throws IOException 写入失败
+     */
+    public void render(ReportModule module, IBundleCoverage bundle,
+                       ExecutionDataStore executionData, SessionInfoStore sessionInfos) throws IOException {
+        module.htmlOutputDir.mkdirs();
+        FileMultiReportOutput output = new FileMultiReportOutput(module.htmlOutputDir);
+        render(output, bundle, executionData, sessionInfos, createSourceLocator(module.sourceRoots));
+    }
+
+    /**
+     * 只重新生成受影响包的页面，其余包的页面保持不变；首页和session页按最新汇总重写
+     *
+     * @param snapshot         分析快照
+     * @param affectedPackages 受影响包的VM名称
+     * @throws IOException 写入失败
+     */
+    public void renderPackages(CoverageSnapshot snapshot, Set<String> affectedPackages) throws IOException {
+        ReportModule module = snapshot.module;
+        module.htmlOutputDir.mkdirs();
+        Set<String> folders = new HashSet<>();
+        for (String vmPackage : affectedPackages) {
+            folders.add(vmPackage.isEmpty() ? DEFAULT_PACKAGE_FOLDER : vmPackage.replace('/', '.'));
+        }
+        IMultiReportOutput output = new PackageFilteringOutput(new FileMultiReportOutput(module.htmlOutputDir), folders);
+        ISourceFileLocator sourceLocator = createSourceLocator(module.sourceRoots);
+        // 未受影响的包不读取源码，省去源码高亮的开销
+        ISourceFileLocator filteringLocator = new ISourceFileLocator() {
+            @Override
+            public Reader getSourceFile(String packageName, String fileName) throws IOException {
+                return affectedPackages.contains(packageName) ? sourceLocator.getSourceFile(packageName, fileName) : null;
+            }
+
+            @Override
+            public int getTabWidth() {
+                return sourceLocator.getTabWidth();
+            }
+        };
+        render(output, snapshot.toBundle(), snapshot.executionData, snapshot.sessionInfos, filteringLocator);
+    }
+
+    private void render(IMultiReportOutput output, IBundleCoverage bundle, ExecutionDataStore executionData,
+                        SessionInfoStore sessionInfos, ISourceFileLocator sourceLocator) throws IOException {
+        HTMLFormatter htmlFormatter = new HTMLFormatter();
+        try {
+            IReportVisitor visitor = htmlFormatter.createVisitor(output);
+            // sessionInfos 不能为 null，否则HTML报告生成失败
+            visitor.visitInfo(sessionInfos.getInfos(), executionData.getContents());
+            visitor.visitBundle(bundle, sourceLocator);
+            visitor.visitEnd();
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * 分析并生成单个模块报告
+     */
+    public ReportResult generate(ReportModule module, ExecutionDataStore executionData, SessionInfoStore sessionInfos) {
+        long start = System.currentTimeMillis();
+        try {
+            IBundleCoverage bundle = analyze(module, executionData);
+            render(module, bundle, executionData, sessionInfos);
+            return ReportResult.success(module, bundle, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            // 部分异常没有message，使用异常本身的描述
+            return ReportResult.failure(module, String.valueOf(e), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 并行生成多个模块报告，执行数据在分析期间只读，可被多个线程共享
+     *
+     * @param modules       模块列表
+     * @param executionData 执行数据
+     * @param sessionInfos  session信息
+     * @return 与模块顺序一致的结果列表
+     */
+    public List<ReportResult> generateAll(List<ReportModule> modules,
+                                          ExecutionDataStore executionData, SessionInfoStore sessionInfos) {
+        List<ReportResult> results = new ArrayList<>();
+        if (modules.size() <= 1 || threads == 1) {
+            for (ReportModule module : modules) {
+                results.add(generate(module, executionData, sessionInfos));
+            }
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, modules.size()));
+        try {
+            List<Future<ReportResult>> futures = new ArrayList<>();
+            for (ReportModule module : modules) {
+                futures.add(executor.submit(() -> generate(module, executionData, sessionInfos)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(getResult(modules.get(i), futures.get(i)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private ReportResult getResult(ReportModule module, Future<ReportResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ReportResult.failure(module, "报告生成被中断", 0);
+        } catch (ExecutionException e) {
+            return ReportResult.failure(module, String.valueOf(e.getCause()), 0);
+        }
+    }
+
+    // 只写入受影响包目录的输出，其他包目录下的文件直接丢弃
+    private static class PackageFilteringOutput implements IMultiReportOutput {
+        private final IMultiReportOutput delegate;
+        private final Set<String> packageFolders;
+
+        PackageFilteringOutput(IMultiReportOutput delegate, Set<String> packageFolders) {
+            this.delegate = delegate;
+            this.packageFolders = packageFolders;
+        }
+
+        @Override
+        public OutputStream createFile(String path) throws IOException {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                return delegate.createFile(path);
+            }
+            String folder = path.substring(0, slash);
+            if (folder.equals(RESOURCES_FOLDER) || packageFolders.contains(folder)) {
+                return delegate.createFile(path);
+            }
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // 多个源码目录合并为一个定位器
+    private ISourceFileLocator createSourceLocator(List<File> sourceRoots) {
+        MultiSourceFileLocator locator = new MultiSourceFileLocator(TAB_WIDTH);
+        for (File sourceRoot : sourceRoots) {
+            locator.add(new DirectorySourceFileLocator(sourceRoot, SOURCE_ENCODING, TAB_WIDTH));
+        }
+        return locator;
+    }
+}
@@ -0,0 +1,71 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一次报告生成的分析快照：执行数据 + 每个class的分析结果
+ * 增量更新时只替换重新编译的class，其余class的分析结果直接复用
+ */
+public class CoverageSnapshot {
+
+    public final ReportModule module;
+    public final ExecutionDataStore executionData;
+    public final SessionInfoStore sessionInfos;
+    // class VM名称 -> 分析结果
+    private final Map<String, IClassCoverage> classes = new TreeMap<>();
+    // class VM名称 -> 所在的class目录，来自jar的class不记录
+    private final Map<String, File> classDirectories = new HashMap<>();
+
+    public CoverageSnapshot(ReportModule module, ExecutionDataStore executionData, SessionInfoStore sessionInfos,
+                            Collection<IClassCoverage> classes, Map<String, File> classDirectories) {
+        this.module = module;
+        this.executionData = executionData;
+        this.sessionInfos = sessionInfos;
+        for (IClassCoverage coverage : classes) {
+            this.classes.put(coverage.getName(), coverage);
+        }
+        this.classDirectories.putAll(classDirectories);
+    }
+
+    public synchronized List<IClassCoverage> getClasses() {
+        return new ArrayList<>(classes.values());
+    }
+
+    // 来自class目录的class，用于检查class文件是否已被删除
+    synchronized Map<String, File> getClassDirectories() {
+        return new HashMap<>(classDirectories);
+    }
+
+    synchronized void put(IClassCoverage coverage, File classDirectory) {
+        classes.put(coverage.getName(), coverage);
+        if (classDirectory != null) {
+            classDirectories.put(coverage.getName(), classDirectory);
+        }
+    }
+
+    synchronized boolean remove(String vmName) {
+        classDirectories.remove(vmName);
+        return classes.remove(vmName) != null;
+    }
+
+    // 由当前所有class重新汇总出模块覆盖率（不重新分析）
+    public synchronized IBundleCoverage toBundle() {
+        CoverageBuilder builder = new CoverageBuilder();
+        for (IClassCoverage coverage : classes.values()) {
+            builder.visitCoverage(coverage);
+        }
+        return builder.getBundle(module.name);
+    }
+}
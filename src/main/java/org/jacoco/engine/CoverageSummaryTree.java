@@ -0,0 +1,251 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按包层级组织的覆盖率摘要树（与IDE无关）
+ * 只保存每个class的行计数；包和类的汇总值在第一次查询时才计算并缓存，
+ * 某个class数据变化时只清除它所在路径上的缓存。
+ */
+public class CoverageSummaryTree {
+
+    private final PackageNode root = new PackageNode(null);
+    // class VM名称 -> 所在节点，用于删除和失效
+    private final Map<String, ClassNode> classIndex = new HashMap<>();
+
+    /**
+     * 用一次完整分析的结果替换整棵树，未变化的class不会使缓存失效
+     *
+     * @param classes 全部class覆盖率
+     */
+    public synchronized void replaceAll(Collection<? extends IClassCoverage> classes) {
+        Set<String> stale = new HashSet<>(classIndex.keySet());
+        for (IClassCoverage coverage : classes) {
+            stale.remove(coverage.getName());
+        }
+        for (String name : stale) {
+            remove(name);
+        }
+        update(classes);
+    }
+
+    /**
+     * 更新部分class的覆盖率
+     *
+     * @param classes 发生变化的class覆盖率
+     */
+    public synchronized void update(Collection<? extends IClassCoverage> classes) {
+        for (IClassCoverage coverage : classes) {
+            put(coverage.getName(), Summary.of(coverage.getLineCounter()));
+        }
+    }
+
+    /**
+     * 删除class（如已被删除的class文件）
+     *
+     * @param vmName class VM名称，如 com/example/Foo$Bar
+     */
+    public synchronized void remove(String vmName) {
+        ClassNode classNode = classIndex.remove(vmName);
+        if (classNode != null && classNode.parts.remove(vmName) != null) {
+            classNode.invalidate();
+        }
+    }
+
+    /**
+     * 获取包（含子包）的汇总覆盖率
+     *
+     * @param packageName 包名，如 com.example
+     * @return 汇总值，无数据时返回null
+     */
+    public synchronized Summary getPackageSummary(String packageName) {
+        PackageNode node = findPackage(packageName);
+        if (node == null) {
+            return null;
+        }
+        Summary summary = node.summary();
+        return summary.isEmpty() ? null : summary;
+    }
+
+    /**
+     * 获取顶层类（含内部类）的汇总覆盖率
+     *
+     * @param packageName 包名，如 com.example
+     * @param className   顶层类简单名称，如 Foo
+     * @return 汇总值，无数据时返回null
+     */
+    public synchronized Summary getClassSummary(String packageName, String className) {
+        PackageNode node = findPackage(packageName);
+        if (node == null) {
+            return null;
+        }
+        ClassNode classNode = node.classes.get(className);
+        if (classNode == null) {
+            return null;
+        }
+        Summary summary = classNode.summary();
+        return summary.isEmpty() ? null : summary;
+    }
+
+    public synchronized void clear() {
+        root.children.clear();
+        root.classes.clear();
+        root.cached = null;
+        classIndex.clear();
+    }
+
+    private void put(String vmName, Summary summary) {
+        ClassNode classNode = classIndex.get(vmName);
+        if (classNode == null) {
+            int slash = vmName.lastIndexOf('/');
+            PackageNode packageNode = slash < 0 ? root : getOrCreatePackage(vmName.substring(0, slash));
+            String simpleName = vmName.substring(slash + 1);
+            int dollar = simpleName.indexOf('$');
+            String topLevelName = dollar > 0 ? simpleName.substring(0, dollar) : simpleName;
+            classNode = packageNode.classes.computeIfAbsent(topLevelName, name -> new ClassNode(packageNode));
+            classIndex.put(vmName, classNode);
+        }
+        if (!summary.equals(classNode.parts.put(vmName, summary))) {
+            classNode.invalidate();
+        }
+    }
+
+    private PackageNode getOrCreatePackage(String vmPackage) {
+        PackageNode node = root;
+        for (String segment : vmPackage.split("/")) {
+            PackageNode parent = node;
+            node = node.children.computeIfAbsent(segment, name -> new PackageNode(parent));
+        }
+        return node;
+    }
+
+    private PackageNode findPackage(String packageName) {
+        PackageNode node = root;
+        if (packageName == null || packageName.isEmpty()) {
+            return node;
+        }
+        for (String segment : packageName.split("\\.")) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 行覆盖摘要
+     */
+    public static final class Summary {
+        static final Summary EMPTY = new Summary(0, 0);
+
+        public final int coveredLines;
+        public final int missedLines;
+
+        Summary(int coveredLines, int missedLines) {
+            this.coveredLines = coveredLines;
+            this.missedLines = missedLines;
+        }
+
+        static Summary of(ICounter lineCounter) {
+            return new Summary(lineCounter.getCoveredCount(), lineCounter.getMissedCount());
+        }
+
+        public Summary plus(Summary other) {
+            return new Summary(coveredLines + other.coveredLines, missedLines + other.missedLines);
+        }
+
+        boolean isEmpty() {
+            return coveredLines + missedLines == 0;
+        }
+
+        public int getTotalLines() {
+            return coveredLines + missedLines;
+        }
+
+        public double getPercent() {
+            return isEmpty() ? 0 : coveredLines * 100.0 / getTotalLines();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Summary)) {
+                return false;
+            }
+            Summary other = (Summary) o;
+            return coveredLines == other.coveredLines && missedLines == other.missedLines;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * coveredLines + missedLines;
+        }
+    }
+
+    private static class PackageNode {
+        final PackageNode parent;
+        final Map<String, PackageNode> children = new HashMap<>();
+        final Map<String, ClassNode> classes = new HashMap<>();
+        Summary cached;
+
+        PackageNode(PackageNode parent) {
+            this.parent = parent;
+        }
+
+        // 懒计算：只有被查询的包才汇总
+        Summary summary() {
+            if (cached == null) {
+                Summary total = Summary.EMPTY;
+                for (ClassNode classNode : classes.values()) {
+                    total = total.plus(classNode.summary());
+                }
+                for (PackageNode child : children.values()) {
+                    total = total.plus(child.summary());
+                }
+                cached = total;
+            }
+            return cached;
+        }
+
+        // 清除自身及所有上级包的缓存
+        void invalidate() {
+            for (PackageNode node = this; node != null; node = node.parent) {
+                node.cached = null;
+            }
+        }
+    }
+
+    private static class ClassNode {
+        final PackageNode owner;
+        // 顶层类及其内部类：VM名称 -> 行覆盖
+        final Map<String, Summary> parts = new HashMap<>();
+        Summary cached;
+
+        ClassNode(PackageNode owner) {
+            this.owner = owner;
+        }
+
+        Summary summary() {
+            if (cached == null) {
+                Summary total = Summary.EMPTY;
+                for (Summary part : parts.values()) {
+                    total = total.plus(part);
+                }
+                cached = total;
+            }
+            return cached;
+        }
+
+        void invalidate() {
+            cached = null;
+            owner.invalidate();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.IClassCoverage;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 增量分析结果：重新分析的class、被删除的class以及受影响的包
+ */
+public class IncrementalUpdate {
+
+    public final List<IClassCoverage> updatedClasses;
+    // 被删除class的VM名称
+    public final Set<String> removedClasses;
+    // 受影响包的VM名称，如 com/example，默认包为空字符串
+    public final Set<String> affectedPackages;
+
+    public IncrementalUpdate(List<IClassCoverage> updatedClasses, Set<String> removedClasses, Set<String> affectedPackages) {
+        this.updatedClasses = List.copyOf(updatedClasses);
+        this.removedClasses = Set.copyOf(removedClasses);
+        this.affectedPackages = Set.copyOf(affectedPackages);
+    }
+
+    public boolean isEmpty() {
+        return affectedPackages.isEmpty();
+    }
+}
@@ -0,0 +1,568 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * jar级别的分析缓存
+ * 依赖jar、Spring Boot fat jar（含 BOOT-INF/lib 下的嵌套jar）按内容hash缓存每个class"无执行数据"时的分析结果。
+ * 缓存分两级：内存LRU和磁盘索引文件（按SHA-256命名），新进程（命令行、IDE重启）也能直接复用。
+ * SNAPSHOT依赖每次构建内容都会变化，磁盘索引同样有总大小上限，写入新索引后按最近使用时间删除旧索引。
+ * 再次分析时只有出现在执行数据中的class才从jar中重新读取分析，其余直接复用缓存结果。
+ */
+public class JarAnalysisCache {
+
+    // 内存中缓存的分析结果估算大小上限，超过后按最近最少使用淘汰（缓存常驻IDE堆内存，不宜过大）
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    // 磁盘索引总大小上限，超过后删除最久未使用的索引文件
+    public static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+    // 磁盘缓存目录的系统属性
+    private static final String CACHE_DIR_PROPERTY = "jacoco.jarCacheDir";
+
+    private static final int INDEX_MAGIC = 0x4A434958;
+    private static final int INDEX_FORMAT_VERSION = 1;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 进程异常退出遗留的临时文件，超过该时间后清理
+    private static final long STALE_TEMP_MILLIS = 24L * 60 * 60 * 1000;
+
+    // 内存估算：对象头、字段、计数器和方法/行数组的大致开销
+    private static final long CLASS_OVERHEAD_BYTES = 512;
+    private static final long METHOD_OVERHEAD_BYTES = 256;
+    private static final long LINE_BYTES = 24;
+
+    private static final JarAnalysisCache SHARED = new JarAnalysisCache(DEFAULT_MAX_BYTES, defaultCacheDir());
+
+    private final long maxBytes;
+    private final File cacheDir;
+    private final long maxDiskBytes;
+    // 路径+大小+修改时间 -> 内容hash，文件未变化时无需重新计算hash
+    private final Map<String, String> hashByStamp = new ConcurrentHashMap<>();
+    // 内容hash -> jar分析结果（访问顺序，用于LRU淘汰）
+    private final LinkedHashMap<String, JarIndex> indexByHash = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * @param maxBytes 内存缓存估算大小上限
+     * @param cacheDir 磁盘缓存目录，为null时只使用内存缓存
+     */
+    public JarAnalysisCache(long maxBytes, File cacheDir) {
+        this(maxBytes, cacheDir, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * @param maxBytes     内存缓存估算大小上限
+     * @param cacheDir     磁盘缓存目录，为null时只使用内存缓存
+     * @param maxDiskBytes 磁盘索引总大小上限
+     */
+    public JarAnalysisCache(long maxBytes, File cacheDir, long maxDiskBytes) {
+        this.maxBytes = maxBytes;
+        this.cacheDir = cacheDir;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    // 插件和命令行共用的缓存实例
+    public static JarAnalysisCache shared() {
+        return SHARED;
+    }
+
+    // 默认磁盘缓存目录：系统属性 jacoco.jarCacheDir，未设置时为用户目录下的 .jacoco-plugin/jar-cache
+    public static File defaultCacheDir() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dir != null && !dir.isBlank()) {
+            return new File(dir);
+        }
+        return new File(System.getProperty("user.home"), ".jacoco-plugin/jar-cache");
+    }
+
+    /**
+     * 判断class来源是否为压缩包（jar/war/zip）
+     */
+    public static boolean isArchive(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".zip");
+    }
+
+    /**
+     * 分析jar中的所有class，结果输出到visitor
+     *
+     * @param jar           jar文件
+     * @param executionData 执行数据
+     * @param visitor       覆盖率接收者
+     * @throws IOException jar读取或class分析失败
+     */
+    public void analyze(File jar, ExecutionDataStore executionData, ICoverageVisitor visitor) throws IOException {
+        String hash = contentHash(jar);
+        Analyzer analyzer = new Analyzer(executionData, visitor);
+        JarIndex index = getIndex(hash);
+        if (index == null) {
+            // 首次分析：读取一次jar，同时建立索引并分析有执行数据的class
+            List<CachedClass> classes = new ArrayList<>();
+            CoverageCollector collector = new CoverageCollector();
+            Analyzer emptyAnalyzer = new Analyzer(new ExecutionDataStore(), collector);
+            readClasses(jar, (bytes, location) -> {
+                collector.coverage = null;
+                emptyAnalyzer.analyzeClass(bytes, location);
+                // 合成类、module-info等不会产生覆盖率结果
+                if (collector.coverage == null) {
+                    return;
+                }
+                classes.add(new CachedClass(location, collector.coverage));
+                if (needsAnalysis(collector.coverage, executionData)) {
+                    analyzer.analyzeClass(bytes, location);
+                } else {
+                    visitor.visitCoverage(collector.coverage);
+                }
+            });
+            index = new JarIndex(classes);
+            putIndex(hash, index);
+            writeIndex(hash, index);
+            return;
+        }
+
+        Set<String> pending = new HashSet<>();
+        for (CachedClass cachedClass : index.classes) {
+            if (needsAnalysis(cachedClass.emptyCoverage, executionData)) {
+                pending.add(cachedClass.location);
+            } else {
+                visitor.visitCoverage(cachedClass.emptyCoverage);
+            }
+        }
+        if (!pending.isEmpty()) {
+            readClasses(jar, (bytes, location) -> {
+                if (pending.contains(location)) {
+                    analyzer.analyzeClass(bytes, location);
+                }
+            });
+        }
+    }
+
+    // 有执行数据（或同名class版本不一致）时需要用真实数据重新分析
+    private static boolean needsAnalysis(IClassCoverage empty, ExecutionDataStore executionData) {
+        return executionData.get(empty.getId()) != null || executionData.contains(empty.getName());
+    }
+
+    // 依次从内存、磁盘获取jar分析结果，均未命中时返回null
+    private JarIndex getIndex(String hash) {
+        synchronized (indexByHash) {
+            JarIndex cached = indexByHash.get(hash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JarIndex index = readIndex(hash);
+        if (index != null) {
+            putIndex(hash, index);
+        }
+        return index;
+    }
+
+    private void putIndex(String hash, JarIndex index) {
+        synchronized (indexByHash) {
+            JarIndex previous = indexByHash.put(hash, index);
+            if (previous != null) {
+                cachedBytes -= previous.estimatedBytes;
+            }
+            cachedBytes += index.estimatedBytes;
+            evict(hash);
+        }
+    }
+
+    // 超过上限时淘汰最久未使用的jar，刚加入的jar除外
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, JarIndex>> iterator = indexByHash.entrySet().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, JarIndex> entry = iterator.next();
+            if (!entry.getKey().equals(keep)) {
+                cachedBytes -= entry.getValue().estimatedBytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    // 计算jar内容hash（SHA-256，普通流读取，不保留内存映射以免Windows下jar被占用）
+    private String contentHash(File jar) throws IOException {
+        String stamp = jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified();
+        String hash = hashByStamp.get(stamp);
+        if (hash != null) {
+            return hash;
+        }
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(jar)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        hash = HexFormat.of().formatHex(digest.digest());
+        hashByStamp.put(stamp, hash);
+        return hash;
+    }
+
+    // 读取jar中所有class（包括嵌套jar）
+    private void readClasses(File jar, ClassHandler handler) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(jar)))) {
+            readEntries(zip, jar.getPath(), handler);
+        }
+    }
+
+    private void readEntries(ZipInputStream zip, String location, ClassHandler handler) throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            String entryLocation = location + "@" + name;
+            if (name.endsWith(".class")) {
+                handler.handle(zip.readAllBytes(), entryLocation);
+            } else if (isNestedArchive(name)) {
+                // 嵌套jar（如 BOOT-INF/lib/*.jar）直接在外层流上读取，不能关闭内层流
+                readEntries(new ZipInputStream(zip), entryLocation, handler);
+            }
+        }
+    }
+
+    private static boolean isNestedArchive(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jar") || lower.endsWith(".war");
+    }
+
+    // ========== 磁盘索引 ==========
+
+    private File indexFile(String hash) {
+        return new File(cacheDir, hash + INDEX_SUFFIX);
+    }
+
+    // 读取磁盘索引，不存在、版本不一致或已损坏时返回null
+    private JarIndex readIndex(String hash) {
+        if (cacheDir == null) {
+            return null;
+        }
+        File file = indexFile(hash);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_FORMAT_VERSION
+                    || !JaCoCo.VERSION.equals(in.readUTF())) {
+                return null;
+            }
+            int classCount = in.readInt();
+            List<CachedClass> classes = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                String location = in.readUTF();
+                classes.add(new CachedClass(location, readClass(in)));
+            }
+            // 更新修改时间，作为清理时的最近使用时间
+            file.setLastModified(System.currentTimeMillis());
+            return new JarIndex(classes);
+        } catch (IOException | RuntimeException e) {
+            // 索引损坏时删除，下次重新建立
+            file.delete();
+            return null;
+        }
+    }
+
+    // 写入磁盘索引（先写临时文件再替换，并发写入同一索引也不会读到半个文件）；写入失败不影响分析
+    private void writeIndex(String hash, JarIndex index) {
+        if (cacheDir == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            tmp = Files.createTempFile(cacheDir.toPath(), hash, TEMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(tmp.toFile()))))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_FORMAT_VERSION);
+                out.writeUTF(JaCoCo.VERSION);
+                out.writeInt(index.classes.size());
+                for (CachedClass cachedClass : index.classes) {
+                    out.writeUTF(cachedClass.location);
+                    writeClass(out, cachedClass.emptyCoverage);
+                }
+            }
+            try {
+                Files.move(tmp, indexFile(hash).toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile(hash).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // 忽略：仅失去磁盘缓存
+        } finally {
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+        pruneIndexes(hash);
+    }
+
+    // 磁盘索引超过上限时按修改时间（最近使用时间）删除最旧的索引，刚写入的索引除外
+    private void pruneIndexes(String keep) {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<File> indexes = new ArrayList<>();
+        long totalBytes = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(INDEX_SUFFIX)) {
+                indexes.add(file);
+                totalBytes += file.length();
+            } else if (name.endsWith(TEMP_SUFFIX) && now - file.lastModified() > STALE_TEMP_MILLIS) {
+                file.delete();
+            }
+        }
+        if (totalBytes <= maxDiskBytes) {
+            return;
+        }
+        indexes.sort(Comparator.comparingLong(File::lastModified));
+        File kept = indexFile(keep);
+        for (File index : indexes) {
+            if (totalBytes <= maxDiskBytes) {
+                break;
+            }
+            long length = index.length();
+            // 其他进程可能同时在清理，删除失败时忽略
+            if (!index.equals(kept) && index.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    private static void writeClass(DataOutputStream out, IClassCoverage coverage) throws IOException {
+        out.writeUTF(coverage.getName());
+        out.writeLong(coverage.getId());
+        out.writeBoolean(coverage.isNoMatch());
+        writeNullable(out, coverage.getSignature());
+        writeNullable(out, coverage.getSuperName());
+        writeNullable(out, coverage.getSourceFileName());
+        String[] interfaces = coverage.getInterfaceNames();
+        out.writeInt(interfaces == null ? 0 : interfaces.length);
+        if (interfaces != null) {
+            for (String name : interfaces) {
+                out.writeUTF(name);
+            }
+        }
+        out.writeInt(coverage.getMethods().size());
+        for (IMethodCoverage method : coverage.getMethods()) {
+            writeMethod(out, method);
+        }
+    }
+
+    private static IClassCoverage readClass(DataInputStream in) throws IOException {
+        ClassCoverageImpl coverage = new ClassCoverageImpl(in.readUTF(), in.readLong(), in.readBoolean());
+        coverage.setSignature(readNullable(in));
+        coverage.setSuperName(readNullable(in));
+        coverage.setSourceFileName(readNullable(in));
+        String[] interfaces = new String[in.readInt()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = in.readUTF();
+        }
+        coverage.setInterfaces(interfaces);
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            coverage.addMethod(readMethod(in));
+        }
+        return coverage;
+    }
+
+    // 方法按行保存指令/分支计数，无行号信息的部分单独保存；复杂度和方法计数直接保存
+    private static void writeMethod(DataOutputStream out, IMethodCoverage method) throws IOException {
+        out.writeUTF(method.getName());
+        out.writeUTF(method.getDesc());
+        writeNullable(out, method.getSignature());
+        writeCounter(out, method.getMethodCounter());
+        writeCounter(out, method.getComplexityCounter());
+
+        int instructionsMissed = method.getInstructionCounter().getMissedCount();
+        int instructionsCovered = method.getInstructionCounter().getCoveredCount();
+        int branchesMissed = method.getBranchCounter().getMissedCount();
+        int branchesCovered = method.getBranchCounter().getCoveredCount();
+        List<Integer> lines = new ArrayList<>();
+        if (method.getFirstLine() != ISourceNode.UNKNOWN_LINE) {
+            for (int nr = method.getFirstLine(); nr <= method.getLastLine(); nr++) {
+                ILine line = method.getLine(nr);
+                if (line.getInstructionCounter().getTotalCount() > 0 || line.getBranchCounter().getTotalCount() > 0) {
+                    lines.add(nr);
+                    instructionsMissed -= line.getInstructionCounter().getMissedCount();
+                    instructionsCovered -= line.getInstructionCounter().getCoveredCount();
+                    branchesMissed -= line.getBranchCounter().getMissedCount();
+                    branchesCovered -= line.getBranchCounter().getCoveredCount();
+                }
+            }
+        }
+        out.writeInt(instructionsMissed);
+        out.writeInt(instructionsCovered);
+        out.writeInt(branchesMissed);
+        out.writeInt(branchesCovered);
+        out.writeInt(lines.size());
+        for (int nr : lines) {
+            ILine line = method.getLine(nr);
+            out.writeInt(nr);
+            writeCounter(out, line.getInstructionCounter());
+            writeCounter(out, line.getBranchCounter());
+        }
+    }
+
+    private static IMethodCoverage readMethod(DataInputStream in) throws IOException {
+        RestoredMethodCoverage method = new RestoredMethodCoverage(in.readUTF(), in.readUTF(), readNullable(in));
+        CounterImpl methodCounter = readCounter(in);
+        CounterImpl complexityCounter = readCounter(in);
+        method.increment(readCounter(in), readCounter(in), ISourceNode.UNKNOWN_LINE);
+        int lineCount = in.readInt();
+        for (int i = 0; i < lineCount; i++) {
+            int nr = in.readInt();
+            method.increment(readCounter(in), readCounter(in), nr);
+        }
+        method.restoreCounters(methodCounter, complexityCounter);
+        return method;
+    }
+
+    private static void writeCounter(DataOutputStream out, ICounter counter) throws IOException {
+        out.writeInt(counter.getMissedCount());
+        out.writeInt(counter.getCoveredCount());
+    }
+
+    private static CounterImpl readCounter(DataInputStream in) throws IOException {
+        return CounterImpl.getInstance(in.readInt(), in.readInt());
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // 估算单个class分析结果占用的内存
+    private static long estimateBytes(CachedClass cachedClass) {
+        IClassCoverage coverage = cachedClass.emptyCoverage;
+        long bytes = CLASS_OVERHEAD_BYTES + 2L * cachedClass.location.length() + lineSlots(coverage) * LINE_BYTES;
+        for (IMethodCoverage method : coverage.getMethods()) {
+            bytes += METHOD_OVERHEAD_BYTES + lineSlots(method) * LINE_BYTES;
+        }
+        return bytes;
+    }
+
+    private static long lineSlots(ISourceNode node) {
+        return node.getFirstLine() == ISourceNode.UNKNOWN_LINE ? 0 : node.getLastLine() - node.getFirstLine() + 1;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 单个jar的分析结果
+    private static class JarIndex {
+        final List<CachedClass> classes;
+        final long estimatedBytes;
+
+        JarIndex(List<CachedClass> classes) {
+            this.classes = classes;
+            long total = 0;
+            for (CachedClass cachedClass : classes) {
+                total += estimateBytes(cachedClass);
+            }
+            this.estimatedBytes = total;
+        }
+    }
+
+    // 单个class在jar中的位置和无执行数据时的覆盖率
+    private static class CachedClass {
+        final String location;
+        final IClassCoverage emptyCoverage;
+
+        CachedClass(String location, IClassCoverage emptyCoverage) {
+            this.location = location;
+            this.emptyCoverage = emptyCoverage;
+        }
+    }
+
+    // 从磁盘索引恢复的方法覆盖率：按行恢复计数后，复杂度和方法计数使用保存的值
+    private static class RestoredMethodCoverage extends MethodCoverageImpl {
+
+        RestoredMethodCoverage(String name, String desc, String signature) {
+            super(name, desc, signature);
+        }
+
+        void restoreCounters(CounterImpl methodCounter, CounterImpl complexityCounter) {
+            this.methodCounter = methodCounter;
+            this.complexityCounter = complexityCounter;
+        }
+    }
+
+    // 收集单个class的分析结果
+    private static class CoverageCollector implements ICoverageVisitor {
+        IClassCoverage coverage;
+
+        @Override
+        public void visitCoverage(IClassCoverage coverage) {
+            this.coverage = coverage;
+        }
+    }
+
+    // jar中单个class的处理
+    private interface ClassHandler {
+        void handle(byte[] bytes, String location) throws IOException;
+    }
+}
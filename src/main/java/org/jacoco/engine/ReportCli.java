@@ -0,0 +1,164 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 命令行入口：在CI或脚本中生成覆盖率报告
+ * <pre>
+ * java -jar jacoco-plugin-report-cli.jar \
+ *     --exec a.exec --exec b.exec \
+ *     --module order --classes order/target/classes --sources order/src/main/java --html out/order \
+ *     --module user  --classes user/target/classes  --sources user/src/main/java  --html out/user
+ * </pre>
+ * --classes / --sources 可重复，也可以用系统路径分隔符拼接多个路径；
+ * --classes 支持class目录以及jar/Spring Boot fat jar；
+ * jar的分析结果缓存在 --cache-dir 目录（默认 ~/.jacoco-plugin/jar-cache），CI中可将该目录加入缓存；
+ * 目录总大小超过 --cache-size（MB，默认256）时删除最久未使用的索引
+ */
+public class ReportCli {
+
+    private static final String USAGE = String.join("\n",
+            "用法: ReportCli --exec <file>... [--threads <n>] [--cache-dir <dir>] [--cache-size <MB>]",
+            "                --module <name> --classes <path>... [--sources <path>...] --html <dir>",
+            "                [--module <name> ...]");
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    static int run(String[] args) {
+        List<File> execFiles = new ArrayList<>();
+        List<ReportModule> modules = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        File cacheDir = null;
+        long cacheSizeBytes = -1;
+
+        // 当前正在解析的模块参数
+        String name = null;
+        List<File> classRoots = new ArrayList<>();
+        List<File> sourceRoots = new ArrayList<>();
+        File htmlDir = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--help".equals(option) || "-h".equals(option)) {
+                System.out.println(USAGE);
+                return 0;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("参数缺少值: " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--exec":
+                    addPaths(execFiles, value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--cache-dir":
+                    cacheDir = new File(value);
+                    break;
+                case "--cache-size":
+                    cacheSizeBytes = Long.parseLong(value) * 1024 * 1024;
+                    break;
+                case "--module":
+                    if (name != null) {
+                        modules.add(buildModule(name, classRoots, sourceRoots, htmlDir));
+                        classRoots = new ArrayList<>();
+                        sourceRoots = new ArrayList<>();
+                        htmlDir = null;
+                    }
+                    name = value;
+                    break;
+                case "--classes":
+                    requireModule(name, option);
+                    addPaths(classRoots, value);
+                    break;
+                case "--sources":
+                    requireModule(name, option);
+                    addPaths(sourceRoots, value);
+                    break;
+                case "--html":
+                    requireModule(name, option);
+                    htmlDir = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + option);
+            }
+        }
+        if (name != null) {
+            modules.add(buildModule(name, classRoots, sourceRoots, htmlDir));
+        }
+        if (execFiles.isEmpty() || modules.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个 --exec 和一个 --module");
+        }
+
+        JarAnalysisCache jarCache = cacheDir == null && cacheSizeBytes < 0 ? JarAnalysisCache.shared()
+                : new JarAnalysisCache(JarAnalysisCache.DEFAULT_MAX_BYTES,
+                cacheDir == null ? JarAnalysisCache.defaultCacheDir() : cacheDir,
+                cacheSizeBytes < 0 ? JarAnalysisCache.DEFAULT_MAX_DISK_BYTES : cacheSizeBytes);
+        CoverageReportEngine engine = new CoverageReportEngine(threads, jarCache);
+        ExecFileLoader loader;
+        try {
+            loader = engine.loadExecutionData(execFiles);
+        } catch (IOException e) {
+            System.err.println("exec文件读取失败: " + e.getMessage());
+            return 1;
+        }
+
+        List<ReportResult> results = engine.generateAll(modules,
+                loader.getExecutionDataStore(), loader.getSessionInfoStore());
+        int failures = 0;
+        for (ReportResult result : results) {
+            if (result.isSuccess()) {
+                ICounter lines = result.bundle.getLineCounter();
+                System.out.printf("[%s] 行覆盖率 %.1f%% (%d/%d)，耗时 %d ms -> %s%n",
+                        result.module.name, percent(lines), lines.getCoveredCount(), lines.getTotalCount(),
+                        result.elapsedMillis, result.module.htmlOutputDir.getAbsolutePath());
+            } else {
+                failures++;
+                System.err.printf("[%s] 报告生成失败: %s%n", result.module.name, result.error);
+            }
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    // 模块参数必须跟在 --module 之后
+    private static void requireModule(String name, String option) {
+        if (name == null) {
+            throw new IllegalArgumentException(option + " 必须在 --module 之后指定");
+        }
+    }
+
+    private static ReportModule buildModule(String name, List<File> classRoots, List<File> sourceRoots, File htmlDir) {
+        if (classRoots.isEmpty() || htmlDir == null) {
+            throw new IllegalArgumentException("模块[" + name + "]缺少 --classes 或 --html");
+        }
+        return new ReportModule(name, classRoots, sourceRoots, htmlDir);
+    }
+
+    private static void addPaths(List<File> target, String value) {
+        for (String path : value.split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                target.add(new File(path));
+            }
+        }
+    }
+
+    private static double percent(ICounter counter) {
+        return counter.getTotalCount() == 0 ? 0 : counter.getCoveredRatio() * 100;
+    }
+}
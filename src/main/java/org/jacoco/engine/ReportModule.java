@@ -0,0 +1,22 @@
+package org.jacoco.engine;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 报告模块描述：一个模块对应一份HTML报告
+ */
+public class ReportModule {
+
+    public final String name;
+    public final List<File> classRoots;
+    public final List<File> sourceRoots;
+    public final File htmlOutputDir;
+
+    public ReportModule(String name, List<File> classRoots, List<File> sourceRoots, File htmlOutputDir) {
+        this.name = name;
+        this.classRoots = List.copyOf(classRoots);
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.htmlOutputDir = htmlOutputDir;
+    }
+}
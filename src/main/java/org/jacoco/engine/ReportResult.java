@@ -0,0 +1,33 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+
+/**
+ * 单个模块的报告生成结果，成功时bundle不为空，失败时error不为空
+ */
+public class ReportResult {
+
+    public final ReportModule module;
+    public final IBundleCoverage bundle;
+    public final String error;
+    public final long elapsedMillis;
+
+    private ReportResult(ReportModule module, IBundleCoverage bundle, String error, long elapsedMillis) {
+        this.module = module;
+        this.bundle = bundle;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static ReportResult success(ReportModule module, IBundleCoverage bundle, long elapsedMillis) {
+        return new ReportResult(module, bundle, null, elapsedMillis);
+    }
+
+    public static ReportResult failure(ReportModule module, String error, long elapsedMillis) {
+        return new ReportResult(module, null, error, elapsedMillis);
+    }
+
+    public boolean isSuccess() {
+        return bundle != null;
+    }
+}
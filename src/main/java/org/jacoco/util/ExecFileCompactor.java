@@ -0,0 +1,333 @@
+package org.jacoco.util;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exec文件压缩工具（与IDE无关）
+ * append=true 时agent会不断追加session，文件越来越大、加载越来越慢。
+ * 这里把一个或多个exec文件并行读取，合并成单个去重后的session，在文件锁保护下原地重写目标文件。
+ * 读取方同样先加共享锁再读取，不会读到重写了一半的文件。
+ */
+public final class ExecFileCompactor {
+
+    // 合并后session的ID前缀
+    private static final String COMPACTED_SESSION_PREFIX = "compacted-";
+    // 重写前保存的合并结果，重写中途崩溃时用于恢复
+    static final String JOURNAL_SUFFIX = ".compacting";
+    private static final Map<Path, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private ExecFileCompactor() {
+    }
+
+    /**
+     * 判断exec文件是否需要压缩：超过阈值，且自上次压缩后又增长了至少一个阈值
+     * 压缩后仍超过阈值的文件（单session、探针数据多）不会在每次dump时被反复重写
+     *
+     * @param execFile          exec文件
+     * @param thresholdBytes    阈值（字节），小于等于0表示不自动压缩
+     * @param lastCompactedSize 上次压缩后的文件大小，未压缩过为0
+     * @return boolean
+     */
+    public static boolean needsCompaction(File execFile, long thresholdBytes, long lastCompactedSize) {
+        if (thresholdBytes <= 0 || !execFile.isFile()) {
+            return false;
+        }
+        long length = execFile.length();
+        return length > thresholdBytes && length - lastCompactedSize >= thresholdBytes;
+    }
+
+    /**
+     * 并行读取多个exec文件并合并
+     * 每个文件使用独立的 ExecFileLoader 读取，最后按顺序合并（探针按位或）
+     *
+     * @param execFiles exec文件列表
+     * @param threads   并行线程数
+     * @return 合并后的数据
+     * @throws IOException 任一文件读取失败
+     */
+    public static ExecFileLoader loadParallel(List<File> execFiles, int threads) throws IOException {
+        if (execFiles.size() == 1) {
+            return load(execFiles.get(0));
+        }
+        ExecFileLoader merged = new ExecFileLoader();
+        if (execFiles.isEmpty()) {
+            return merged;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, execFiles.size())));
+        try {
+            List<Future<ExecFileLoader>> futures = new ArrayList<>();
+            for (File execFile : execFiles) {
+                futures.add(executor.submit(() -> load(execFile)));
+            }
+            for (Future<ExecFileLoader> future : futures) {
+                ExecFileLoader loader = getResult(future);
+                loader.getSessionInfoStore().accept(merged.getSessionInfoStore());
+                loader.getExecutionDataStore().accept(merged.getExecutionDataStore());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return merged;
+    }
+
+    /**
+     * 持有共享锁读取单个exec文件，与agent追加写入、压缩重写互斥
+     * 上次压缩中途崩溃留下的文件先恢复再读取
+     *
+     * @param execFile exec文件
+     * @return 读取的数据
+     * @throws IOException 读取失败
+     */
+    public static ExecFileLoader load(File execFile) throws IOException {
+        Path path = execFile.toPath().toAbsolutePath().normalize();
+        ReentrantLock localLock = localLock(path);
+        localLock.lock();
+        try {
+            if (Files.exists(journalOf(path))) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    channel.lock();
+                    recover(path, channel);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.lock(0, Long.MAX_VALUE, true);
+                ExecFileLoader loader = new ExecFileLoader();
+                // 流不单独关闭（会同时关闭通道），通道在读取完成后关闭并释放锁
+                loader.load(Channels.newInputStream(channel));
+                return loader;
+            }
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    // 同一进程内对同一文件重复加FileLock会抛出OverlappingFileLockException，文件锁之外再加进程内锁
+    private static ReentrantLock localLock(Path path) {
+        return LOCAL_LOCKS.computeIfAbsent(path, key -> new ReentrantLock());
+    }
+
+    /**
+     * 压缩exec文件：合并所有session为一个，写回输出文件
+     * agent（output=file）追加写入前会对exec文件加 FileChannel.lock()，
+     * 这里从读取到写回全程持有所有文件的锁，并通过加锁的通道原地重写，
+     * 不做重命名替换：agent每次写入都重新打开文件，等锁期间打开的是旧文件，替换后这次写入会丢失。
+     * 原地重写前先把合并结果和原文件长度写入日志文件（.compacting）并落盘，
+     * 重写中途崩溃时由下一次读取或压缩从日志恢复，崩溃后agent追加的数据保留在末尾。
+     * 其余输入文件的数据并入输出文件后被截断为空，由调用方删除。
+     *
+     * @param inputs  输入exec文件（可以包含输出文件本身）
+     * @param output  输出exec文件
+     * @param threads 并行读取线程数
+     * @return 合并前的session数量
+     * @throws IOException 读取或写入失败
+     */
+    public static int compact(List<File> inputs, File output, int threads) throws IOException {
+        Path target = output.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(target.getParent());
+        Set<Path> paths = new LinkedHashSet<>();
+        paths.add(target);
+        for (File input : inputs) {
+            paths.add(input.toPath().toAbsolutePath().normalize());
+        }
+        // 按路径顺序加进程内锁，避免两个压缩任务交叉等待
+        List<ReentrantLock> localLocks = new ArrayList<>();
+        for (Path path : new TreeSet<>(paths)) {
+            ReentrantLock localLock = localLock(path);
+            localLock.lock();
+            localLocks.add(localLock);
+        }
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            FileChannel outputChannel = FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channels.add(outputChannel);
+            for (Path path : paths) {
+                if (!path.equals(target)) {
+                    channels.add(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                }
+            }
+            // 锁随通道关闭释放
+            for (FileChannel channel : channels) {
+                channel.lock();
+            }
+            recover(target, outputChannel);
+
+            ExecFileLoader merged = loadChannels(channels, threads);
+            List<SessionInfo> sessions = merged.getSessionInfoStore().getInfos();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+            if (!sessions.isEmpty()) {
+                writer.visitSessionInfo(mergeSessions(sessions));
+            }
+            merged.getExecutionDataStore().accept(writer);
+
+            byte[] content = buffer.toByteArray();
+            Path journal = journalOf(target);
+            writeJournal(journal, outputChannel.size(), content);
+            rewrite(outputChannel, ByteBuffer.wrap(content));
+            // 输出文件落盘后再清空其余输入，中途失败不会丢数据
+            for (FileChannel channel : channels.subList(1, channels.size())) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+            Files.delete(journal);
+            return sessions.size();
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            for (ReentrantLock localLock : localLocks) {
+                localLock.unlock();
+            }
+        }
+    }
+
+    // 在已加锁的通道上并行读取（读取期间不关闭通道，以免释放锁）
+    private static ExecFileLoader loadChannels(List<FileChannel> channels, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, channels.size())));
+        try {
+            List<Future<ExecFileLoader>> futures = new ArrayList<>();
+            for (FileChannel channel : channels) {
+                futures.add(executor.submit(() -> {
+                    ExecFileLoader loader = new ExecFileLoader();
+                    channel.position(0);
+                    loader.load(Channels.newInputStream(channel));
+                    return loader;
+                }));
+            }
+            ExecFileLoader merged = new ExecFileLoader();
+            for (Future<ExecFileLoader> future : futures) {
+                ExecFileLoader loader = getResult(future);
+                loader.getSessionInfoStore().accept(merged.getSessionInfoStore());
+                loader.getExecutionDataStore().accept(merged.getExecutionDataStore());
+            }
+            return merged;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 从头覆盖写入并截断多余内容
+    private static void rewrite(FileChannel channel, ByteBuffer content) throws IOException {
+        channel.position(0);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+        channel.truncate(channel.position());
+        channel.force(true);
+    }
+
+    private static Path journalOf(Path execFile) {
+        return execFile.resolveSibling(execFile.getFileName() + JOURNAL_SUFFIX);
+    }
+
+    // 日志先写临时文件、落盘后再改名，日志存在即表示内容完整
+    private static void writeJournal(Path journal, long originalLength, byte[] content) throws IOException {
+        Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + content.length);
+            buffer.putLong(originalLength).put(content).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 上次压缩中途崩溃时恢复exec文件，调用方需持有文件的排他锁
+     * 文件仍可完整读取（已重写完成）时只删除日志；否则写回日志中的合并结果，
+     * 并保留原文件长度之后agent新追加的数据（合并结果更长时无法区分，丢弃）
+     */
+    private static void recover(Path execFile, FileChannel channel) throws IOException {
+        Path journal = journalOf(execFile);
+        if (!Files.exists(journal)) {
+            return;
+        }
+        if (!isReadable(channel)) {
+            ByteBuffer saved = ByteBuffer.wrap(Files.readAllBytes(journal));
+            long originalLength = saved.getLong();
+            ByteBuffer content = saved.slice();
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(0);
+            if (content.remaining() <= originalLength && size > originalLength) {
+                tail = ByteBuffer.allocate((int) (size - originalLength));
+                channel.position(originalLength);
+                while (tail.hasRemaining()) {
+                    if (channel.read(tail) < 0) {
+                        break;
+                    }
+                }
+                tail.flip();
+            }
+            ByteBuffer restored = ByteBuffer.allocate(content.remaining() + tail.remaining());
+            restored.put(content).put(tail).flip();
+            rewrite(channel, restored);
+        }
+        Files.delete(journal);
+    }
+
+    private static boolean isReadable(FileChannel channel) {
+        try {
+            channel.position(0);
+            new ExecFileLoader().load(Channels.newInputStream(channel));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // 合并session：取最早开始时间和最晚dump时间
+    private static SessionInfo mergeSessions(List<SessionInfo> sessions) {
+        long start = Long.MAX_VALUE;
+        long dump = Long.MIN_VALUE;
+        for (SessionInfo session : sessions) {
+            start = Math.min(start, session.getStartTimeStamp());
+            dump = Math.max(dump, session.getDumpTimeStamp());
+        }
+        return new SessionInfo(COMPACTED_SESSION_PREFIX + dump, start, dump);
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("exec文件读取被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("exec文件读取失败: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.jacoco;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * -javaagent 参数构建：规则分隔符统一为:，并且不能出现多余的逗号
+ */
+class AgentProfileTest {
+
+    private static final String AGENT = "/opt/jacocoagent.jar";
+
+    @Test
+    void tcpserverUsesPortAndDefaultIncludes() {
+        AgentProfile profile = new AgentProfile(AgentProfile.DEFAULT_PROFILE);
+        assertEquals("-javaagent:" + AGENT + "=output=tcpserver,port=6300,address=127.0.0.1"
+                        + ",includes=com.example.*,exclclassloader=sun.reflect.DelegatingClassLoader",
+                profile.toAgentParameter(AGENT, 6300, "/data/jacoco.exec", "com.example.*"));
+    }
+
+    @Test
+    void fileOutputAppendsToExecFile() {
+        AgentProfile profile = new AgentProfile(AgentProfile.FILE_PROFILE);
+        profile.output = AgentProfile.OUTPUT_FILE;
+        profile.exclClassLoader = "";
+        profile.dumpOnExit = false;
+        profile.inclBootstrapClasses = true;
+        assertEquals("-javaagent:" + AGENT + "=output=file,destfile=/data/jacoco.exec,append=true"
+                        + ",includes=*,inclbootstrapclasses=true,dumponexit=false",
+                profile.toAgentParameter(AGENT, -1, "/data/jacoco.exec", "*"));
+    }
+
+    @Test
+    void patternsAreNormalizedToColonSeparators() {
+        AgentProfile profile = new AgentProfile("custom");
+        profile.output = AgentProfile.OUTPUT_NONE;
+        profile.includes = " com.a.*, com.b.*;com.c.*\n";
+        profile.excludes = ":*.dto.* ,";
+        profile.exclClassLoader = "  ";
+        assertEquals("-javaagent:" + AGENT + "=output=none,includes=com.a.*:com.b.*:com.c.*,excludes=*.dto.*",
+                profile.toAgentParameter(AGENT, -1, "/data/jacoco.exec", "com.example.*"));
+    }
+
+    @Test
+    void slimProfileExcludesNonLogicPackages() {
+        AgentProfile slim = null;
+        for (AgentProfile profile : AgentProfile.builtinProfiles()) {
+            if (AgentProfile.SLIM_PROFILE.equals(profile.name)) {
+                slim = profile;
+            }
+        }
+        String parameter = slim.toAgentParameter(AGENT, 6300, "/data/jacoco.exec", "com.example.*");
+        assertTrue(parameter.contains(",includes=com.example.*,excludes=" + AgentProfile.SLIM_EXCLUDES + ","));
+    }
+}
@@ -0,0 +1,35 @@
+package org.jacoco;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 空闲回收后的会话不能再重连，否则连接脱离管理器，一直占用agent
+ */
+class JaCoCoAgentSessionTest {
+
+    @Test
+    void closedSessionRefusesToReconnect() throws IOException {
+        JaCoCoAgentSession session = new JaCoCoAgentSession("127.0.0.1", unusedPort());
+        assertFalse(session.closeIfIdle(Long.MAX_VALUE));
+        // 未关闭的会话会尝试连接
+        assertThrows(IOException.class, () -> session.dump(false));
+
+        assertTrue(session.closeIfIdle(0));
+        assertNull(session.dump(false));
+        assertFalse(session.isConnected());
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量分析：编译器不会通知被删除的class，需要从class目录中检测
+ */
+class CoverageReportEngineTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void detectsClassFilesDeletedWithoutNotification() throws IOException {
+        File classes = new File(tempDir, "classes");
+        File removedFile = copyClass(classes, ReportModule.class);
+        copyClass(classes, ReportResult.class);
+        File recompiled = copyClass(classes, IncrementalUpdate.class);
+        ReportModule module = new ReportModule("app", List.of(classes), List.of(), new File(tempDir, "html"));
+
+        CoverageReportEngine engine = new CoverageReportEngine(1, new JarAnalysisCache(0, new File(tempDir, "cache")));
+        CoverageSnapshot snapshot = engine.analyzeSnapshot(module, new ExecutionDataStore(), new SessionInfoStore());
+        assertEquals(3, snapshot.getClasses().size());
+
+        // 源文件删除后只有其他class被重新编译
+        assertTrue(removedFile.delete());
+        IncrementalUpdate update = engine.updateClasses(snapshot,
+                Map.of("org/jacoco/engine/IncrementalUpdate", recompiled));
+
+        assertEquals(Set.of("org/jacoco/engine/ReportModule"), update.removedClasses);
+        assertEquals(Set.of("org/jacoco/engine"), update.affectedPackages);
+        Set<String> remaining = new HashSet<>();
+        for (IClassCoverage coverage : snapshot.getClasses()) {
+            remaining.add(coverage.getName());
+        }
+        assertEquals(Set.of("org/jacoco/engine/ReportResult", "org/jacoco/engine/IncrementalUpdate"), remaining);
+
+        // 再次编译时不再重复报告
+        assertTrue(engine.updateClasses(snapshot, Map.of()).isEmpty());
+    }
+
+    private static File copyClass(File classRoot, Class<?> type) throws IOException {
+        File target = new File(classRoot, type.getName().replace('.', '/') + ".class");
+        target.getParentFile().mkdirs();
+        try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            assertNotNull(in, type.getName());
+            Files.copy(in, target.toPath());
+        }
+        return target;
+    }
+}
@@ -0,0 +1,90 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 摘要树的汇总与缓存失效：任意class变化后，所在路径上所有已缓存的汇总值都要更新
+ */
+class CoverageSummaryTreeTest {
+
+    @Test
+    void aggregatesSubpackagesAndInnerClasses() {
+        CoverageSummaryTree tree = new CoverageSummaryTree();
+        tree.update(List.of(
+                coverage("com/example/Foo", 2, 1),
+                coverage("com/example/Foo$Inner", 1, 1),
+                coverage("com/example/web/Bar", 3, 0),
+                coverage("com/other/Baz", 0, 5)));
+
+        assertSummary(3, 2, tree.getClassSummary("com.example", "Foo"));
+        assertSummary(6, 2, tree.getPackageSummary("com.example"));
+        assertSummary(3, 0, tree.getPackageSummary("com.example.web"));
+        assertSummary(6, 7, tree.getPackageSummary("com"));
+        assertNull(tree.getPackageSummary("com.missing"));
+    }
+
+    @Test
+    void updateInvalidatesEveryAncestor() {
+        CoverageSummaryTree tree = new CoverageSummaryTree();
+        tree.update(List.of(coverage("a/b/c/Deep", 0, 4), coverage("a/Top", 1, 0)));
+        // 先查询一遍，使各级包都缓存汇总值
+        assertSummary(0, 4, tree.getPackageSummary("a.b.c"));
+        assertSummary(0, 4, tree.getPackageSummary("a.b"));
+        assertSummary(1, 4, tree.getPackageSummary("a"));
+
+        tree.update(List.of(coverage("a/b/c/Deep", 3, 1)));
+
+        assertSummary(3, 1, tree.getClassSummary("a.b.c", "Deep"));
+        assertSummary(3, 1, tree.getPackageSummary("a.b.c"));
+        assertSummary(3, 1, tree.getPackageSummary("a.b"));
+        assertSummary(4, 1, tree.getPackageSummary("a"));
+    }
+
+    @Test
+    void removeAndReplaceAllDropStaleClasses() {
+        CoverageSummaryTree tree = new CoverageSummaryTree();
+        tree.update(List.of(coverage("p/A", 1, 1), coverage("p/A$1", 1, 0), coverage("p/B", 2, 0)));
+        assertSummary(4, 1, tree.getPackageSummary("p"));
+
+        tree.remove("p/A$1");
+        assertSummary(1, 1, tree.getClassSummary("p", "A"));
+        assertSummary(3, 1, tree.getPackageSummary("p"));
+
+        tree.replaceAll(List.of(coverage("p/B", 0, 2)));
+        assertNull(tree.getClassSummary("p", "A"));
+        assertSummary(0, 2, tree.getPackageSummary("p"));
+
+        tree.clear();
+        assertNull(tree.getPackageSummary("p"));
+    }
+
+    private static void assertSummary(int covered, int missed, CoverageSummaryTree.Summary summary) {
+        assertEquals(covered, summary.coveredLines);
+        assertEquals(missed, summary.missedLines);
+    }
+
+    // 构造指定行覆盖的class：每行一条指令
+    private static IClassCoverage coverage(String vmName, int coveredLines, int missedLines) {
+        MethodCoverageImpl method = new MethodCoverageImpl("run", "()V", null);
+        int line = 1;
+        for (int i = 0; i < coveredLines; i++) {
+            method.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, line++);
+        }
+        for (int i = 0; i < missedLines; i++) {
+            method.increment(CounterImpl.COUNTER_1_0, CounterImpl.COUNTER_0_0, line++);
+        }
+        method.incrementMethodCounter();
+        ClassCoverageImpl coverage = new ClassCoverageImpl(vmName, 0, false);
+        coverage.addMethod(method);
+        return coverage;
+    }
+}
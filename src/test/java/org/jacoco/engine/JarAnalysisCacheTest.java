@@ -0,0 +1,219 @@
+package org.jacoco.engine;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 缓存结果（首次、内存命中、磁盘命中）必须与 Analyzer.analyzeAll 直接分析fat jar的结果一致
+ */
+class JarAnalysisCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    private File fatJar;
+    private byte[] executedClass;
+    private byte[] changedClass;
+
+    @BeforeEach
+    void createFatJar() throws IOException {
+        executedClass = classBytes(Analyzer.class);
+        changedClass = classBytes(CoverageSummaryTree.class);
+
+        // BOOT-INF/lib 下的嵌套jar
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(nested)) {
+            put(zip, "org/jacoco/core/analysis/Analyzer.class", executedClass);
+            put(zip, "org/jacoco/engine/ReportModule.class", classBytes(ReportModule.class));
+        }
+        fatJar = new File(tempDir, "app.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(fatJar))) {
+            put(zip, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes());
+            put(zip, "BOOT-INF/classes/org/jacoco/engine/ReportCli.class", classBytes(ReportCli.class));
+            put(zip, "BOOT-INF/classes/org/jacoco/engine/CoverageSummaryTree.class", changedClass);
+            put(zip, "BOOT-INF/lib/nested.jar", nested.toByteArray());
+        }
+    }
+
+    @Test
+    void matchesAnalyzerWithoutExecutionData() throws IOException {
+        assertCachedMatchesAnalyzer(new ExecutionDataStore());
+    }
+
+    @Test
+    void matchesAnalyzerWithExecutionData() throws IOException {
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        // 部分探针命中
+        boolean[] probes = new boolean[probeCount(executedClass)];
+        for (int i = 0; i < probes.length; i += 2) {
+            probes[i] = true;
+        }
+        executionData.put(new ExecutionData(CRC64.classId(executedClass), "org/jacoco/core/analysis/Analyzer", probes));
+        // 同名但版本不同的class（noMatch）
+        executionData.put(new ExecutionData(CRC64.classId(changedClass) + 1, "org/jacoco/engine/CoverageSummaryTree",
+                new boolean[1]));
+        assertCachedMatchesAnalyzer(executionData);
+    }
+
+    @Test
+    void prunesLeastRecentlyUsedIndexes() throws IOException {
+        File otherJar = new File(tempDir, "other.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(otherJar))) {
+            put(zip, "org/jacoco/engine/ReportModule.class", classBytes(ReportModule.class));
+        }
+        File cacheDir = new File(tempDir, "cache");
+        File staleTemp = new File(cacheDir, "abc.tmp");
+        // 上限很小，任意两个索引都会超出
+        JarAnalysisCache cache = new JarAnalysisCache(JarAnalysisCache.DEFAULT_MAX_BYTES, cacheDir, 1);
+        analyze(cache, new ExecutionDataStore());
+        File[] first = cacheDir.listFiles((dir, name) -> name.endsWith(".idx"));
+        assertEquals(1, first.length);
+        assertTrue(first[0].setLastModified(System.currentTimeMillis() - 60_000));
+        assertTrue(staleTemp.createNewFile());
+        assertTrue(staleTemp.setLastModified(System.currentTimeMillis() - 2L * 24 * 60 * 60 * 1000));
+
+        cache.analyze(otherJar, new ExecutionDataStore(), new CoverageBuilder());
+
+        File[] remaining = cacheDir.listFiles();
+        assertEquals(1, remaining.length);
+        assertTrue(remaining[0].getName().endsWith(".idx"));
+        assertNotEquals(first[0], remaining[0]);
+    }
+
+    private void assertCachedMatchesAnalyzer(ExecutionDataStore executionData) throws IOException {
+        CoverageBuilder expected = new CoverageBuilder();
+        try (InputStream in = new FileInputStream(fatJar)) {
+            new Analyzer(executionData, expected).analyzeAll(in, fatJar.getPath());
+        }
+        assertFalse(expected.getClasses().isEmpty());
+
+        File cacheDir = new File(tempDir, "cache");
+        JarAnalysisCache cache = new JarAnalysisCache(JarAnalysisCache.DEFAULT_MAX_BYTES, cacheDir);
+        // 首次分析
+        assertSameCoverage(expected, analyze(cache, executionData));
+        // 内存命中
+        assertSameCoverage(expected, analyze(cache, executionData));
+        // 新实例从磁盘索引恢复
+        assertSameCoverage(expected, analyze(new JarAnalysisCache(JarAnalysisCache.DEFAULT_MAX_BYTES, cacheDir),
+                executionData));
+    }
+
+    private CoverageBuilder analyze(JarAnalysisCache cache, ExecutionDataStore executionData) throws IOException {
+        CoverageBuilder builder = new CoverageBuilder();
+        cache.analyze(fatJar, executionData, builder);
+        return builder;
+    }
+
+    private static void assertSameCoverage(CoverageBuilder expected, CoverageBuilder actual) {
+        Map<String, IClassCoverage> actualClasses = new HashMap<>();
+        for (IClassCoverage coverage : actual.getClasses()) {
+            actualClasses.put(coverage.getName(), coverage);
+        }
+        assertEquals(expected.getClasses().size(), actualClasses.size());
+        for (IClassCoverage expectedClass : expected.getClasses()) {
+            IClassCoverage actualClass = actualClasses.get(expectedClass.getName());
+            assertNotNull(actualClass, expectedClass.getName());
+            assertEquals(expectedClass.getId(), actualClass.getId());
+            assertEquals(expectedClass.isNoMatch(), actualClass.isNoMatch());
+            assertEquals(expectedClass.getSourceFileName(), actualClass.getSourceFileName());
+            assertEquals(expectedClass.getSuperName(), actualClass.getSuperName());
+            assertSameNode(expectedClass, actualClass);
+
+            Map<String, IMethodCoverage> actualMethods = new HashMap<>();
+            for (IMethodCoverage method : actualClass.getMethods()) {
+                actualMethods.put(method.getName() + method.getDesc(), method);
+            }
+            assertEquals(expectedClass.getMethods().size(), actualMethods.size());
+            for (IMethodCoverage expectedMethod : expectedClass.getMethods()) {
+                IMethodCoverage actualMethod = actualMethods.get(expectedMethod.getName() + expectedMethod.getDesc());
+                assertNotNull(actualMethod, expectedMethod.getName());
+                assertEquals(expectedMethod.getSignature(), actualMethod.getSignature());
+                assertSameNode(expectedMethod, actualMethod);
+            }
+        }
+        assertEquals(expected.getNoMatchClasses().size(), actual.getNoMatchClasses().size());
+    }
+
+    // 比较所有计数器和每一行的计数
+    private static void assertSameNode(ISourceNode expected, ISourceNode actual) {
+        String name = expected.getName();
+        for (ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity.values()) {
+            ICounter expectedCounter = expected.getCounter(entity);
+            ICounter actualCounter = actual.getCounter(entity);
+            assertEquals(expectedCounter.getMissedCount(), actualCounter.getMissedCount(), name + " " + entity);
+            assertEquals(expectedCounter.getCoveredCount(), actualCounter.getCoveredCount(), name + " " + entity);
+        }
+        assertEquals(expected.getFirstLine(), actual.getFirstLine(), name);
+        assertEquals(expected.getLastLine(), actual.getLastLine(), name);
+        for (int nr = expected.getFirstLine(); nr <= expected.getLastLine() && nr != ISourceNode.UNKNOWN_LINE; nr++) {
+            assertEquals(expected.getLine(nr).getInstructionCounter(), actual.getLine(nr).getInstructionCounter(),
+                    name + ":" + nr);
+            assertEquals(expected.getLine(nr).getBranchCounter(), actual.getLine(nr).getBranchCounter(),
+                    name + ":" + nr);
+        }
+    }
+
+    private static byte[] classBytes(Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            assertNotNull(in, type.getName());
+            return in.readAllBytes();
+        }
+    }
+
+    private static void put(ZipOutputStream zip, String name, byte[] bytes) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+
+    // class的探针数量，用于构造有效的执行数据
+    private static int probeCount(byte[] bytes) {
+        int[] count = new int[1];
+        ClassProbesVisitor counter = new ClassProbesVisitor() {
+            @Override
+            public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature,
+                                                   String[] exceptions) {
+                return null;
+            }
+
+            @Override
+            public void visitTotalProbeCount(int total) {
+                count[0] = total;
+            }
+        };
+        InstrSupport.classReaderFor(bytes).accept(new ClassProbesAdapter(counter, false), 0);
+        return count[0];
+    }
+}
@@ -0,0 +1,29 @@
+package org.jacoco.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 命令行参数校验和失败结果
+ */
+class ReportCliTest {
+
+    @Test
+    void rejectsModuleOptionsBeforeFirstModule() {
+        for (String option : List.of("--classes", "--sources", "--html")) {
+            assertThrows(IllegalArgumentException.class, () -> ReportCli.run(new String[]{
+                    "--exec", "a.exec", option, "x", "--module", "app", "--classes", "c", "--html", "h"}), option);
+        }
+    }
+
+    @Test
+    void failureWithoutMessageIsNotSuccess() {
+        ReportModule module = new ReportModule("app", List.of(new File("c")), List.of(), new File("h"));
+        assertFalse(ReportResult.failure(module, null, 0).isSuccess());
+    }
+}
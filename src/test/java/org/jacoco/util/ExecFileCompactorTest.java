@@ -0,0 +1,152 @@
+package org.jacoco.util;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * exec文件压缩：合并session、探针按位或、清空其余输入，以及重写中途崩溃后的恢复
+ */
+class ExecFileCompactorTest {
+
+    private static final long CLASS_ID = 0x1234L;
+    private static final String CLASS_NAME = "com/example/Foo";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void mergesSessionsAndOrsProbes() throws IOException {
+        File execFile = new File(tempDir, "jacoco.exec");
+        // agent以append=true追加的三个session
+        append(execFile, "s1", 100, 200, true, false, false);
+        append(execFile, "s2", 150, 300, false, true, false);
+        append(execFile, "s3", 120, 250, false, false, false);
+
+        assertEquals(3, ExecFileCompactor.compact(List.of(execFile), execFile, 2));
+
+        ExecFileLoader loader = ExecFileCompactor.load(execFile);
+        List<SessionInfo> sessions = loader.getSessionInfoStore().getInfos();
+        assertEquals(1, sessions.size());
+        assertEquals(100, sessions.get(0).getStartTimeStamp());
+        assertEquals(300, sessions.get(0).getDumpTimeStamp());
+        assertArrayEquals(new boolean[]{true, true, false}, probes(loader));
+        assertFalse(journal(execFile).exists());
+    }
+
+    @Test
+    void truncatesOtherInputs() throws IOException {
+        File output = new File(tempDir, "jacoco.exec");
+        File other = new File(tempDir, "other.exec");
+        append(output, "s1", 100, 200, true, false, false);
+        append(other, "s2", 150, 300, false, false, true);
+
+        assertEquals(2, ExecFileCompactor.compact(List.of(output, other), output, 2));
+
+        assertEquals(0, other.length());
+        assertArrayEquals(new boolean[]{true, false, true}, probes(ExecFileCompactor.load(output)));
+    }
+
+    @Test
+    void recompactingIsStable() throws IOException {
+        File execFile = new File(tempDir, "jacoco.exec");
+        append(execFile, "s1", 100, 200, true, false, false);
+        append(execFile, "s2", 150, 300, false, true, false);
+        ExecFileCompactor.compact(List.of(execFile), execFile, 1);
+        byte[] compacted = Files.readAllBytes(execFile.toPath());
+
+        assertEquals(1, ExecFileCompactor.compact(List.of(execFile), execFile, 1));
+        assertArrayEquals(compacted, Files.readAllBytes(execFile.toPath()));
+
+        // 压缩后agent继续追加
+        append(execFile, "s3", 400, 500, false, false, true);
+        assertEquals(2, ExecFileCompactor.compact(List.of(execFile), execFile, 1));
+        ExecFileLoader loader = ExecFileCompactor.load(execFile);
+        assertEquals(1, loader.getSessionInfoStore().getInfos().size());
+        assertArrayEquals(new boolean[]{true, true, true}, probes(loader));
+    }
+
+    @Test
+    void handlesEmptyAndMissingInputs() throws IOException {
+        File output = new File(tempDir, "data/jacoco.exec");
+        // 输出文件不存在时创建
+        assertEquals(0, ExecFileCompactor.compact(List.of(output), output, 1));
+        assertTrue(output.isFile());
+        assertTrue(ExecFileCompactor.load(output).getExecutionDataStore().getContents().isEmpty());
+
+        File empty = new File(tempDir, "empty.exec");
+        assertTrue(empty.createNewFile());
+        assertEquals(0, ExecFileCompactor.compact(List.of(empty), empty, 1));
+        assertTrue(ExecFileCompactor.loadParallel(List.of(), 1).getSessionInfoStore().isEmpty());
+
+        // 其余输入不存在时失败，输出文件保持不变
+        File execFile = new File(tempDir, "jacoco.exec");
+        append(execFile, "s1", 100, 200, true, false, false);
+        byte[] before = Files.readAllBytes(execFile.toPath());
+        assertThrows(IOException.class, () -> ExecFileCompactor.compact(
+                List.of(execFile, new File(tempDir, "missing.exec")), execFile, 1));
+        assertArrayEquals(before, Files.readAllBytes(execFile.toPath()));
+    }
+
+    @Test
+    void recoversFromCrashDuringRewrite() throws IOException {
+        File execFile = new File(tempDir, "jacoco.exec");
+        append(execFile, "s1", 100, 200, true, false, false);
+        append(execFile, "s2", 150, 300, false, true, false);
+        File copy = new File(tempDir, "copy.exec");
+        Files.copy(execFile.toPath(), copy.toPath());
+        ExecFileCompactor.compact(List.of(copy), copy, 1);
+        byte[] compacted = Files.readAllBytes(copy.toPath());
+        long originalLength = execFile.length();
+
+        // 模拟崩溃：日志已落盘，合并结果只写了一半，之后agent又追加了一个session
+        ByteBuffer journal = ByteBuffer.allocate(Long.BYTES + compacted.length);
+        journal.putLong(originalLength).put(compacted);
+        Files.write(journal(execFile).toPath(), journal.array());
+        byte[] original = Files.readAllBytes(execFile.toPath());
+        System.arraycopy(compacted, 0, original, 0, compacted.length / 2);
+        Files.write(execFile.toPath(), original);
+        append(execFile, "s3", 400, 500, false, false, true);
+
+        ExecFileLoader loader = ExecFileCompactor.load(execFile);
+        assertEquals(2, loader.getSessionInfoStore().getInfos().size());
+        assertArrayEquals(new boolean[]{true, true, true}, probes(loader));
+        assertFalse(journal(execFile).exists());
+    }
+
+    private static File journal(File execFile) {
+        return new File(execFile.getPath() + ExecFileCompactor.JOURNAL_SUFFIX);
+    }
+
+    private static boolean[] probes(ExecFileLoader loader) {
+        return loader.getExecutionDataStore().get(CLASS_ID).getProbes();
+    }
+
+    // 按agent的方式追加一个session
+    private static void append(File execFile, String sessionId, long start, long dump, boolean... probes)
+            throws IOException {
+        execFile.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(execFile, true)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo(sessionId, start, dump));
+            writer.visitClassExecution(new ExecutionData(CLASS_ID, CLASS_NAME, probes));
+        }
+    }
+}